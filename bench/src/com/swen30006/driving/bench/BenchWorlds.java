@@ -0,0 +1,154 @@
+package com.swen30006.driving.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.graphics.Texture;
+import com.swen30006.driving.headless.HeadlessGL;
+import com.swen30006.driving.headless.Tournament;
+
+import controller.CarController;
+import replay.InputLog;
+import replay.InputRecorder;
+import replay.ReplayController;
+import world.Car;
+import world.MapCache;
+import world.World;
+import world.WorldMap;
+
+/**
+ * Sets up libGDX headlessly once per benchmark JVM, then hands out fresh worlds on the
+ * shipped maps. Maps and the car texture are loaded once and shared, so benchmark setup
+ * only pays for the World and Car themselves.
+ *
+ * Benchmarks that drive a car time a whole WINDOW of ticks from the start of a fresh
+ * world per invocation, rather than one tick of a world that carries on for as long as
+ * the iteration lasts, so every tick measured is one of a car still in the run.
+ *
+ * Benchmarks must be run with core/assets as the working directory, which the :bench
+ * Gradle task does.
+ */
+public final class BenchWorlds {
+
+	/** The tick length used by every benchmark, the same as a 60Hz simulation */
+	public static final float DELTA = 1/60f;
+
+	/**
+	 * The ticks each driving benchmark times per invocation, 8 simulated seconds. Every
+	 * shipped controller is still running on every shipped map after this long.
+	 */
+	public static final int WINDOW = 480;
+
+	private static final String CAR_SPRITE = "sprites/car2.png";
+
+	private static final Map<String,WorldMap> maps = new HashMap<String,WorldMap>();
+	private static Texture carTexture = null;
+
+	private BenchWorlds(){
+	}
+
+	/**
+	 * A new world on the given map, with its car driven by the named controller.
+	 */
+	public static synchronized World world(String mapName, String controllerName){
+		Function<Car,CarController> factory = Tournament.controllerFactory(controllerName);
+		return new World(map(mapName), carTexture, factory);
+	}
+
+	/**
+	 * The first WINDOW ticks of the named controller driving on a map, as its control
+	 * calls, so the same run can be replayed without the controller.
+	 * @throws IllegalStateException if the car finishes within the window
+	 */
+	public static InputLog record(String mapName, String controllerName){
+		World world = world(mapName, controllerName);
+		Car car = world.getCar();
+		InputRecorder recorder = new InputRecorder(mapName, controllerName, DELTA);
+		car.setInputRecorder(recorder);
+		run(world);
+		recorder.finish(car.stateHash());
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			recorder.writeTo(bytes);
+			return new InputLog(bytes.toByteArray());
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * A new world on the given map, with its car driven by a recording.
+	 */
+	public static synchronized World replay(String mapName, final InputLog log){
+		return new World(map(mapName), carTexture, new Function<Car,CarController>(){
+			@Override
+			public CarController apply(Car car){
+				return new ReplayController(car, log);
+			}
+		});
+	}
+
+	/**
+	 * Steps a world through WINDOW ticks, the work of one invocation.
+	 * @throws IllegalStateException if the car finishes before the end
+	 */
+	public static World run(World world){
+		Car car = world.getCar();
+		for(int i = 0; i < WINDOW; i++){
+			world.update(DELTA);
+		}
+		if(car.getOutcome().isFinished()){
+			throw new IllegalStateException("The car finished within the window with " + car.getOutcome()
+					+ ", WINDOW has to be shorter");
+		}
+		return world;
+	}
+
+	/**
+	 * The named map, loaded once and shared.
+	 */
+	static synchronized WorldMap map(String mapName){
+		initialise();
+		WorldMap map = maps.get(mapName);
+		if(map == null){
+			map = MapCache.load(mapName);
+			maps.put(mapName, map);
+		}
+		return map;
+	}
+
+	private static void initialise(){
+		if(carTexture != null){
+			return;
+		}
+		// Constructing the application is what sets up Gdx.files and the natives, the
+		// render loop itself is never needed so it is stopped straight away
+		HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+		config.renderInterval = -1;
+		new HeadlessApplication(new ApplicationAdapter(){}, config);
+		Gdx.app.exit();
+		HeadlessGL.install();
+		carTexture = new Texture(CAR_SPRITE);
+
+		// Some controllers print every tick; the printing is still measured but the
+		// output would drown JMH's own
+		System.setOut(new PrintStream(new OutputStream(){
+			@Override
+			public void write(int b){
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len){
+			}
+		}));
+	}
+}
@@ -0,0 +1,115 @@
+package com.swen30006.driving.bench;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tiles.TileKind;
+import world.CarBatch;
+import world.CarParameters;
+import world.WorldMap;
+
+/**
+ * A step of a CarBatch full of cars driving forwards and now and then turning, on one
+ * thread and split over the common pool. Divide by cars for the cost of one car's tick,
+ * to compare with CarBenchmark.update.
+ *
+ * Cars finish by running out of health against walls, and a finished car is no longer
+ * stepped, so each invocation times the first STEPS steps of a fresh batch rather than
+ * one step of a batch that empties as the iteration goes on.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CarBatchBenchmark {
+
+	@Param({"easy-map.tmx", "lecture-preview2.tmx"})
+	public String map;
+
+	@Param({"1000", "20000"})
+	public int cars;
+
+	/**
+	 * Steps timed per invocation. On the shipped maps over 99% of the cars are still
+	 * running after this many, where after 480 almost none are.
+	 */
+	static final int STEPS = 100;
+	// Fewer cars than this still running at the end fails the invocation
+	private static final float MIN_RUNNING = 0.95f;
+
+	private CarBatch batch;
+	private int tick;
+
+	@Setup(Level.Invocation)
+	public void setUp(){
+		WorldMap worldMap = BenchWorlds.map(map);
+		batch = new CarBatch(worldMap, 32, 24, cars);
+		// Spread the cars over every plain road tile in turn, as one on a trap or an exit
+		// would finish straight away
+		int added = 0;
+		while(added < cars){
+			for(int y = 0; y < worldMap.getHeight() && added < cars; y++){
+				for(int x = 0; x < worldMap.getWidth() && added < cars; x++){
+					if(worldMap.lookUp(x, y).getKind() == TileKind.ROAD){
+						batch.add(x, y, CarParameters.DEFAULT);
+						added++;
+					}
+				}
+			}
+		}
+		tick = 0;
+	}
+
+	@TearDown(Level.Invocation)
+	public void checkRunning(){
+		if(batch.getRunning() < cars * MIN_RUNNING){
+			throw new IllegalStateException("Only " + batch.getRunning() + " of " + cars
+					+ " cars were still running at the end, STEPS has to be shorter");
+		}
+	}
+
+	private void steer(){
+		tick++;
+		for(int car = 0; car < cars; car++){
+			int turn = (car + tick) % 7 == 0 ? CarBatch.LEFT : 0;
+			batch.setControls(car, CarBatch.FORWARD | turn);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(STEPS)
+	public CarBatch step(){
+		for(int i = 0; i < STEPS; i++){
+			steer();
+			batch.step(BenchWorlds.DELTA);
+		}
+		return batch;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(STEPS)
+	public CarBatch stepParallel(){
+		for(int i = 0; i < STEPS; i++){
+			steer();
+			batch.step(BenchWorlds.DELTA, ForkJoinPool.commonPool());
+		}
+		return batch;
+	}
+}
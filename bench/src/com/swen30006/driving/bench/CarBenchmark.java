@@ -0,0 +1,102 @@
+package com.swen30006.driving.bench;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.badlogic.gdx.math.Vector2;
+
+import replay.InputLog;
+import tiles.MapTile;
+import utilities.Coordinate;
+import utilities.PeekTuple;
+import world.Car;
+import world.World;
+import world.WorldSpatial;
+
+/**
+ * The car's own hot paths: what it can see, predicting a turn, and a tick of physics.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CarBenchmark {
+
+	/**
+	 * A car sitting at the start of the map.
+	 */
+	@State(Scope.Thread)
+	public static class Parked {
+
+		@Param({"easy-map.tmx", "easy-map-traps.tmx", "lecture-preview.tmx", "lecture-preview(1).tmx", "lecture-preview2.tmx"})
+		public String map;
+
+		Car car;
+		final Vector2 velocity = new Vector2(3, 0);
+
+		@Setup
+		public void setUp(){
+			car = BenchWorlds.world(map, "AIController").getCar();
+		}
+	}
+
+	/**
+	 * A car being driven round the map as the shipped AIController drove it, replaying
+	 * its recorded calls so that the controller's decisions are not timed. Each
+	 * invocation is a fresh car through BenchWorlds.WINDOW ticks.
+	 */
+	@State(Scope.Thread)
+	public static class Driven {
+
+		@Param({"easy-map.tmx", "easy-map-traps.tmx", "lecture-preview.tmx", "lecture-preview(1).tmx", "lecture-preview2.tmx"})
+		public String map;
+
+		InputLog log;
+		World world;
+
+		@Setup(Level.Trial)
+		public void record(){
+			log = BenchWorlds.record(map, "AIController");
+		}
+
+		// An invocation is a whole window of ticks, long enough for this not to skew it
+		@Setup(Level.Invocation)
+		public void setUp(){
+			world = BenchWorlds.replay(map, log);
+		}
+	}
+
+	@Benchmark
+	public HashMap<Coordinate,MapTile> getView(Parked parked){
+		return parked.car.getView();
+	}
+
+	@Benchmark
+	public PeekTuple peek(Parked parked){
+		return parked.car.peek(parked.velocity, WorldSpatial.NORTH_DEGREE, WorldSpatial.RelativeDirection.LEFT, BenchWorlds.DELTA);
+	}
+
+	/**
+	 * A tick of the car, with the replayed controls, which cost a few byte reads.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(BenchWorlds.WINDOW)
+	public World update(Driven driven){
+		return BenchWorlds.run(driven.world);
+	}
+}
@@ -0,0 +1,72 @@
+package com.swen30006.driving.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import replay.InputLog;
+import world.World;
+
+/**
+ * A controller's decisions, as the ticks of the first BenchWorlds.WINDOW of its run on a
+ * map. A tick is the controller's update and the car's, so the same window is also
+ * replayed from a recording of the controller's calls: the difference between the two
+ * is what the controller itself costs a tick. Results are per tick.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ControllerBenchmark {
+
+	@State(Scope.Thread)
+	public static class Run {
+
+		@Param({"AIController", "MyAIController"})
+		public String controllerName;
+
+		@Param({"easy-map.tmx", "easy-map-traps.tmx", "lecture-preview.tmx", "lecture-preview(1).tmx", "lecture-preview2.tmx"})
+		public String map;
+
+		InputLog log;
+		World live;
+		World replayed;
+
+		@Setup(Level.Trial)
+		public void record(){
+			log = BenchWorlds.record(map, controllerName);
+		}
+
+		// An invocation is a whole window of ticks, long enough for this not to skew it
+		@Setup(Level.Invocation)
+		public void setUp(){
+			live = BenchWorlds.world(map, controllerName);
+			replayed = BenchWorlds.replay(map, log);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BenchWorlds.WINDOW)
+	public World update(Run run){
+		return BenchWorlds.run(run.live);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BenchWorlds.WINDOW)
+	public World replayed(Run run){
+		return BenchWorlds.run(run.replayed);
+	}
+}
@@ -0,0 +1,57 @@
+package com.swen30006.driving.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tiles.MapTile;
+import world.World;
+
+/**
+ * World.lookUp, walking every tile of the map in turn so that every kind of tile and
+ * both edges are hit.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WorldBenchmark {
+
+	@Param({"easy-map.tmx", "easy-map-traps.tmx", "lecture-preview.tmx", "lecture-preview(1).tmx", "lecture-preview2.tmx"})
+	public String map;
+
+	private World world;
+	private int x;
+	private int y;
+
+	@Setup
+	public void setUp(){
+		world = BenchWorlds.world(map, "AIController");
+		x = 0;
+		y = 0;
+	}
+
+	@Benchmark
+	public MapTile lookUp(){
+		if(++x == world.getMapWidth()){
+			x = 0;
+			if(++y == world.getMapHeight()){
+				y = 0;
+			}
+		}
+		// Cars look up by their float position, so that is the path measured
+		return world.lookUp((double) x, (double) y);
+	}
+}
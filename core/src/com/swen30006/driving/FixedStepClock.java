@@ -0,0 +1,56 @@
+package com.swen30006.driving;
+
+/**
+ * Turns variable frame times into a whole number of fixed-length simulation ticks, so the
+ * simulation behaves the same however fast or slow frames are drawn. Time left over
+ * between ticks is kept for the next frame, and is also what the renderer interpolates by.
+ *
+ * If frames fall so far behind that more than maxStepsPerFrame ticks are owed, the
+ * excess is dropped and the simulation runs slower than real time, rather than spending
+ * ever longer catching up.
+ */
+public class FixedStepClock {
+
+	private final float stepDelta;
+	private final double stepSeconds;
+	private final int maxStepsPerFrame;
+	private double accumulator = 0;
+
+	public FixedStepClock(int ticksPerSecond, int maxStepsPerFrame){
+		if(ticksPerSecond <= 0 || maxStepsPerFrame <= 0){
+			throw new IllegalArgumentException("Tick rate and catch up steps must be positive");
+		}
+		this.stepDelta = 1f / ticksPerSecond;
+		this.stepSeconds = 1.0 / ticksPerSecond;
+		this.maxStepsPerFrame = maxStepsPerFrame;
+	}
+
+	/**
+	 * Adds a frame's worth of real time.
+	 * @return how many ticks the simulation should now run
+	 */
+	public int advance(float frameSeconds){
+		accumulator += frameSeconds;
+		int steps = (int) (accumulator / stepSeconds);
+		if(steps > maxStepsPerFrame){
+			steps = maxStepsPerFrame;
+			accumulator = 0;
+		}
+		else{
+			accumulator -= steps * stepSeconds;
+		}
+		return steps;
+	}
+
+	/**
+	 * How far between the last tick and the next one real time is, from 0 to 1.
+	 */
+	public float getAlpha(){
+		return (float) (accumulator / stepSeconds);
+	}
+
+	/** The delta each tick should be run with **/
+	public float getStepDelta(){
+		return stepDelta;
+	}
+}
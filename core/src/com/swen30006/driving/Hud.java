@@ -0,0 +1,134 @@
+package com.swen30006.driving;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.GlyphLayout;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.StringBuilder;
+
+import world.World;
+
+/**
+ * Draws the text over the map: the car's health, the win banner and, optionally, a
+ * performance overlay. It owns one batch and one layout per piece of text, and only lays
+ * text out again when what it says has changed, so drawing a frame allocates nothing.
+ *
+ * The overlay shows the average frame time, simulation ticks per second and time spent
+ * in the controller per tick, refreshed twice a second.
+ */
+public class Hud implements Disposable {
+
+	private static final String WIN_TEXT = "You WIN!";
+	private static final float STATS_INTERVAL = 0.5f;
+
+	private final SpriteBatch batch = new SpriteBatch();
+	private final BitmapFont font = new BitmapFont();
+	private final BitmapFont bannerFont = new BitmapFont();
+	private final BitmapFont statsFont = new BitmapFont();
+
+	private final GlyphLayout healthLayout = new GlyphLayout();
+	private final GlyphLayout winLayout = new GlyphLayout();
+	private final GlyphLayout statsLayout = new GlyphLayout();
+	private final StringBuilder text = new StringBuilder();
+	private int shownHealth = Integer.MIN_VALUE;
+
+	private boolean showStats = false;
+	private float statsSeconds = 0;
+	private int statsFrames = 0;
+	private int statsTicks = 0;
+	private long statsControllerNanos = 0;
+
+	public Hud(){
+		font.getData().setScale(2f);
+		font.setColor(Color.GREEN);
+		bannerFont.getData().setScale(5f);
+		bannerFont.setColor(Color.GREEN);
+		statsFont.setColor(Color.WHITE);
+		winLayout.setText(bannerFont, WIN_TEXT);
+		statsLayout.setText(statsFont, "");
+	}
+
+	/**
+	 * Keeps the text at the same size in pixels when the window is resized.
+	 */
+	public void resize(int width, int height){
+		batch.getProjectionMatrix().setToOrtho2D(0, 0, width, height);
+	}
+
+	public void toggleStats(){
+		showStats = !showStats;
+	}
+
+	/**
+	 * Counts a frame towards the overlay.
+	 * @param frameSeconds how long the frame took
+	 * @param ticks how many simulation ticks the frame ran
+	 * @param controllerNanos how long the controller took over those ticks
+	 */
+	public void recordFrame(float frameSeconds, int ticks, long controllerNanos){
+		statsSeconds += frameSeconds;
+		statsFrames++;
+		statsTicks += ticks;
+		statsControllerNanos += controllerNanos;
+		if(statsSeconds >= STATS_INTERVAL){
+			layoutStats();
+			statsSeconds = 0;
+			statsFrames = 0;
+			statsTicks = 0;
+			statsControllerNanos = 0;
+		}
+	}
+
+	public void render(int health, boolean escaped, int screenWidth, int screenHeight){
+		if(health != shownHealth){
+			text.setLength(0);
+			text.append(health);
+			healthLayout.setText(font, text);
+			shownHealth = health;
+		}
+
+		batch.begin();
+		int offset = 1;
+		//Relative to screen size.
+		font.draw(batch, healthLayout, World.MAP_PIXEL_SIZE, screenHeight - offset*World.MAP_PIXEL_SIZE);
+		if(escaped){
+			final float fontX = 0 + (screenWidth - winLayout.width) / 2;
+			final float fontY = 0 + (screenHeight + winLayout.height) / 2;
+			bannerFont.draw(batch, winLayout, fontX, fontY);
+		}
+		if(showStats){
+			statsFont.draw(batch, statsLayout, screenWidth - statsLayout.width - World.MAP_PIXEL_SIZE,
+					screenHeight - World.MAP_PIXEL_SIZE);
+		}
+		batch.end();
+	}
+
+	private void layoutStats(){
+		text.setLength(0);
+		text.append("frame ");
+		appendTenths(statsSeconds * 1000 / statsFrames);
+		text.append(" ms\nsim ");
+		appendTenths(statsTicks / statsSeconds);
+		text.append(" ticks/s\ncontroller ");
+		appendTenths(statsTicks == 0 ? 0 : statsControllerNanos / 1000f / statsTicks);
+		text.append(" us/tick");
+		statsLayout.setText(statsFont, text);
+	}
+
+	// StringBuilder.append(float) goes through a String, this doesn't
+	private void appendTenths(float value){
+		int tenths = Math.round(value * 10);
+		text.append(tenths / 10);
+		text.append('.');
+		text.append(tenths % 10);
+	}
+
+	@Override
+	public void dispose(){
+		batch.dispose();
+		font.dispose();
+		bannerFont.dispose();
+		statsFont.dispose();
+	}
+}
@@ -4,18 +4,18 @@ import com.badlogic.gdx.ApplicationAdapter;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input;
 import com.badlogic.gdx.InputProcessor;
-import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.Texture;
-import com.badlogic.gdx.graphics.g2d.BitmapFont;
-import com.badlogic.gdx.graphics.g2d.GlyphLayout;
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.maps.tiled.TiledMap;
 import com.badlogic.gdx.maps.tiled.TmxMapLoader;
 import com.badlogic.gdx.maps.tiled.renderers.OrthogonalTiledMapRenderer;
 import com.badlogic.gdx.math.MathUtils;
 
+import world.Car;
+import world.MapCache;
+import world.Outcome;
+import world.TickProfile;
 import world.World;
 
 /**
@@ -25,20 +25,32 @@ import world.World;
  *
  */
 public class Simulation extends ApplicationAdapter implements InputProcessor {
-	SpriteBatch batch;
 	Texture img;
-	public static TiledMap map;
-	public static long startTime;
-	public static OrthographicCamera camera;
+	private TiledMap map;
+	private long startTime;
+	private OrthographicCamera camera;
 	private World world;
 	OrthogonalTiledMapRenderer tiledMapRenderer;
 	private enum CameraMode {WORLD, PLAYER};
-	private static CameraMode CAMERA_MODE = CameraMode.WORLD;
+	private CameraMode CAMERA_MODE = CameraMode.WORLD;
 	private static final int PLAYER_VIEW = 11;
-	private static boolean gameWon = false;
 	public static boolean DEBUG_MODE = false;
-	private BitmapFont font;
+	private Hud hud;
+	private static final int DEFAULT_TICKS_PER_SECOND = 60;
+	private static final int DEFAULT_MAX_CATCH_UP_STEPS = 5;
+	private final FixedStepClock clock;
 	
+	public Simulation(){
+		this(DEFAULT_TICKS_PER_SECOND, DEFAULT_MAX_CATCH_UP_STEPS);
+	}
+	
+	/**
+	 * @param ticksPerSecond how often the world is updated, independent of the frame rate
+	 * @param maxCatchUpSteps the most ticks run in one frame after a slow frame
+	 */
+	public Simulation(int ticksPerSecond, int maxCatchUpSteps){
+		clock = new FixedStepClock(ticksPerSecond, maxCatchUpSteps);
+	}
 
 	
 	@Override
@@ -46,19 +58,20 @@ public class Simulation extends ApplicationAdapter implements InputProcessor {
 		
 		startTime = System.currentTimeMillis();
 		// Define the asset manager
-//		 map = new TmxMapLoader().load("easy-map.tmx");
-		// map = new TmxMapLoader().load("easy-map-traps.tmx");
-		map = new TmxMapLoader().load("lecture-preview(1).tmx");
-		// map = new TmxMapLoader().load("lecture-preview2.tmx");
-		// map = new TmxMapLoader().load("map.tmx");
-		// map = new TmxMapLoader().load("map2.tmx");
+//		 String mapName = "easy-map.tmx";
+		// String mapName = "easy-map-traps.tmx";
+		String mapName = "lecture-preview(1).tmx";
+		// String mapName = "lecture-preview2.tmx";
+		// String mapName = "map.tmx";
+		// String mapName = "map2.tmx";
+		map = new TmxMapLoader().load(mapName);
 		
-		// Create the world
-		world = new World(map);
+		// Create the world, from the map's cache when it has an up to date one
+		world = new World(MapCache.load(mapName, map));
 		
 		// Set the camera
 		camera = new OrthographicCamera();
-		camera.setToOrtho(false,World.MAP_WIDTH,World.MAP_HEIGHT);
+		camera.setToOrtho(false,world.getMapWidth(),world.getMapHeight());
 		camera.update();
 		
 		// Define scale per unit
@@ -66,8 +79,8 @@ public class Simulation extends ApplicationAdapter implements InputProcessor {
 		tiledMapRenderer = new OrthogonalTiledMapRenderer(map,unitScale);
 		Gdx.input.setInputProcessor(this);
 		
-		// Initialize fonts
-		font = new BitmapFont();
+		// Initialize the text drawn over the map
+		hud = new Hud();
 	}
 
 	@Override
@@ -75,49 +88,63 @@ public class Simulation extends ApplicationAdapter implements InputProcessor {
 		Gdx.gl.glClearColor(1, 0, 0, 1);
 		Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
 
+		// Run however many fixed ticks this frame's time covers, stopping once the attempt is over
+		float frameTime = Gdx.graphics.getRawDeltaTime();
+		int ticks = clock.advance(frameTime);
+		long controllerNanos = world.getControllerNanos();
+		int ticksRun = 0;
+		for(; ticksRun < ticks && !world.getCar().getOutcome().isFinished(); ticksRun++){
+			world.update(clock.getStepDelta());
+		}
+		hud.recordFrame(frameTime, ticksRun, world.getControllerNanos() - controllerNanos);
+		float alpha = clock.getAlpha();
+		
+		if(CAMERA_MODE.equals(CameraMode.PLAYER)){
+			followCar(alpha);
+		}
+		camera.update();
+
+		long renderStart = System.nanoTime();
 		tiledMapRenderer.setView(camera);
 		tiledMapRenderer.render();
 		
 		tiledMapRenderer.getBatch().begin();
-		world.render(tiledMapRenderer.getBatch());
+		world.render(tiledMapRenderer.getBatch(), alpha);
 		tiledMapRenderer.getBatch().end();
+		world.getTickProfile().record(TickProfile.Phase.RENDER, System.nanoTime() - renderStart);
 
-		world.update(Gdx.graphics.getDeltaTime());
-		
-		if(CAMERA_MODE.equals(CameraMode.PLAYER)){
-			followCar();
-		}
-		
-		camera.update();
-		batch = new SpriteBatch();
-		batch.begin();
-		String health = Integer.toString(world.getCar().getHealth());
-		font.getData().setScale(2f);
-		int offset = 1;
-		//Relative to screen size.
-		font.draw(batch, health, World.MAP_PIXEL_SIZE, Gdx.graphics.getHeight() - offset*World.MAP_PIXEL_SIZE);
-		font.setColor(Color.GREEN);
+		Car car = world.getCar();
+		Outcome outcome = car.getOutcome();
+		hud.render(car.getHealth(), outcome == Outcome.ESCAPED, Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
 		//If we win!
-		if(gameWon){
-			font.getData().setScale(5f);
-			String winText = "You WIN!";
-			final GlyphLayout layout = new GlyphLayout(font, winText);
-
-			final float fontX = 0 + (Gdx.graphics.getWidth() - layout.width) / 2;
-			final float fontY = 0 + (Gdx.graphics.getHeight() + layout.height) / 2;
-
-			font.draw(batch, layout, fontX, fontY);
-			font.setColor(Color.GREEN);
-			
+		if(outcome == Outcome.ESCAPED){
 			System.out.println("You escaped and it took: " + ((System.currentTimeMillis() - startTime) / 1000+" seconds!"));
+			printTickProfile();
 
 			Gdx.app.exit();
 		}
-		batch.end();
+		else if(outcome.isFinished()){
+			if(outcome == Outcome.STUCK_IN_MUD){
+				System.out.println("STUCK IN MUD. GAME OVER. ESCAPE FAILED!!");
+			}
+			else{
+				System.out.println("NO HEALTH. GAME OVER. ESCAPE FAILED!!");
+			}
+			System.out.println("Time elapsed: " + ((System.currentTimeMillis() - startTime) / 1000+" seconds!"));
+			printTickProfile();
+			Gdx.app.exit();
+		}
+	}
+	
+	@Override
+	public void resize (int width, int height) {
+		hud.resize(width, height);
 	}
 	
 	@Override
 	public void dispose () {
+		hud.dispose();
+		world.dispose();
 	}
 
 	@Override
@@ -137,14 +164,20 @@ public class Simulation extends ApplicationAdapter implements InputProcessor {
 		}
 		if(keycode == Input.Keys.Z){
 			
-			camera.viewportWidth = World.MAP_WIDTH;
-			camera.viewportHeight = World.MAP_HEIGHT;
+			camera.viewportWidth = world.getMapWidth();
+			camera.viewportHeight = world.getMapHeight();
 			camera.position.set(0,0,0);
 			CAMERA_MODE = CameraMode.WORLD;
 		}
 		if(keycode == Input.Keys.F){
 			DEBUG_MODE = true;
 		}
+		if(keycode == Input.Keys.O){
+			hud.toggleStats();
+		}
+		if(keycode == Input.Keys.L){
+			printTickProfile();
+		}
 		camera.zoom = MathUtils.clamp(camera.zoom, 0.1f, 100/camera.viewportWidth);
 
 		float effectiveViewportWidth = camera.viewportWidth * camera.zoom;
@@ -185,18 +218,22 @@ public class Simulation extends ApplicationAdapter implements InputProcessor {
 		return false;
 	}
 	
+	private void printTickProfile(){
+		TickProfile.printHeader(System.out);
+		world.getTickProfile().print(world.getController().getClass().getSimpleName(), System.out);
+	}
+	
 	public void followCar(){
+		followCar(clock.getAlpha());
+	}
+	
+	private void followCar(float alpha){
 		
-		float carXPosition = world.getCar().getX();
-		float carYPosition = world.getCar().getY();
+		float carXPosition = world.getCar().getDrawX(alpha);
+		float carYPosition = world.getCar().getDrawY(alpha);
 		
 		camera.position.set(carXPosition, carYPosition, 0);
 		
 	}
-	
-	public static void winGame(){
-		gameWon = true;
-
-	}
 
 }
@@ -1,9 +1,5 @@
 package controller;
 
-import java.util.HashMap;
-
-import tiles.MapTile;
-import utilities.Coordinate;
 import world.Car;
 import world.WorldSpatial;
 
@@ -32,10 +28,6 @@ public class AIController extends CarController {
 	@Override
 	public void update(float delta) {
 		
-		// Gets what the car can see
-		HashMap<Coordinate, MapTile> currentView = getView();
-		
-		
 		checkStateChange();
 
 
@@ -49,7 +41,7 @@ public class AIController extends CarController {
 				lastTurnDirection = WorldSpatial.RelativeDirection.LEFT;
 				applyLeftTurn(getOrientation(),delta);
 			}
-			if(checkNorth(currentView)){
+			if(checkNorth()){
 				// Turn right until we go back to east!
 				if(!getOrientation().equals(WorldSpatial.Direction.EAST)){
 					lastTurnDirection = WorldSpatial.RelativeDirection.RIGHT;
@@ -71,7 +63,7 @@ public class AIController extends CarController {
 			}
 			else if(isTurningLeft){
 				// Apply the left turn if you are not currently near a wall.
-				if(!checkFollowingWall(getOrientation(),currentView)){
+				if(!checkFollowingWall(getOrientation())){
 					applyLeftTurn(getOrientation(),delta);
 				}
 				else{
@@ -79,13 +71,13 @@ public class AIController extends CarController {
 				}
 			}
 			// Try to determine whether or not the car is next to a wall.
-			else if(checkFollowingWall(getOrientation(),currentView)){
+			else if(checkFollowingWall(getOrientation())){
 				// Maintain some velocity
 				if(getVelocity() < CAR_SPEED){
 					applyForwardAcceleration();
 				}
 				// If there is wall ahead, turn right!
-				if(checkWallAhead(getOrientation(),currentView)){
+				if(checkWallAhead(getOrientation())){
 					lastTurnDirection = WorldSpatial.RelativeDirection.RIGHT;
 					isTurningRight = true;				
 					
@@ -271,19 +263,18 @@ public class AIController extends CarController {
 	/**
 	 * Check if you have a wall in front of you!
 	 * @param orientation the orientation we are in based on WorldSpatial
-	 * @param currentView what the car can currently see
 	 * @return
 	 */
-	private boolean checkWallAhead(WorldSpatial.Direction orientation, HashMap<Coordinate, MapTile> currentView){
+	private boolean checkWallAhead(WorldSpatial.Direction orientation){
 		switch(orientation){
 		case EAST:
-			return checkEast(currentView);
+			return checkEast();
 		case NORTH:
-			return checkNorth(currentView);
+			return checkNorth();
 		case SOUTH:
-			return checkSouth(currentView);
+			return checkSouth();
 		case WEST:
-			return checkWest(currentView);
+			return checkWest();
 		default:
 			return false;
 		
@@ -293,20 +284,19 @@ public class AIController extends CarController {
 	/**
 	 * Check if the wall is on your left hand side given your orientation
 	 * @param orientation
-	 * @param currentView
 	 * @return
 	 */
-	private boolean checkFollowingWall(WorldSpatial.Direction orientation, HashMap<Coordinate, MapTile> currentView) {
+	private boolean checkFollowingWall(WorldSpatial.Direction orientation) {
 		
 		switch(orientation){
 		case EAST:
-			return checkNorth(currentView);
+			return checkNorth();
 		case NORTH:
-			return checkWest(currentView);
+			return checkWest();
 		case SOUTH:
-			return checkEast(currentView);
+			return checkEast();
 		case WEST:
-			return checkSouth(currentView);
+			return checkSouth();
 		default:
 			return false;
 		}
@@ -315,59 +305,27 @@ public class AIController extends CarController {
 	
 
 	/**
-	 * Method below just iterates through the list and check in the correct coordinates.
+	 * Methods below scan the next few tiles in the correct direction for a wall.
 	 * i.e. Given your current position is 10,10
 	 * checkEast will check up to wallSensitivity amount of tiles to the right.
 	 * checkWest will check up to wallSensitivity amount of tiles to the left.
 	 * checkNorth will check up to wallSensitivity amount of tiles to the top.
 	 * checkSouth will check up to wallSensitivity amount of tiles below.
 	 */
-	public boolean checkEast(HashMap<Coordinate, MapTile> currentView){
-		// Check tiles to my right
-		Coordinate currentPosition = new Coordinate(getPosition());
-		for(int i = 0; i <= wallSensitivity; i++){
-			MapTile tile = currentView.get(new Coordinate(currentPosition.x+i, currentPosition.y));
-			if(tile.getName().equals("Wall")){
-				return true;
-			}
-		}
-		return false;
+	public boolean checkEast(){
+		return isWallWithin(WorldSpatial.Direction.EAST, wallSensitivity);
 	}
 	
-	public boolean checkWest(HashMap<Coordinate,MapTile> currentView){
-		// Check tiles to my left
-		Coordinate currentPosition = new Coordinate(getPosition());
-		for(int i = 0; i <= wallSensitivity; i++){
-			MapTile tile = currentView.get(new Coordinate(currentPosition.x-i, currentPosition.y));
-			if(tile.getName().equals("Wall")){
-				return true;
-			}
-		}
-		return false;
+	public boolean checkWest(){
+		return isWallWithin(WorldSpatial.Direction.WEST, wallSensitivity);
 	}
 	
-	public boolean checkNorth(HashMap<Coordinate,MapTile> currentView){
-		// Check tiles to towards the top
-		Coordinate currentPosition = new Coordinate(getPosition());
-		for(int i = 0; i <= wallSensitivity; i++){
-			MapTile tile = currentView.get(new Coordinate(currentPosition.x, currentPosition.y+i));
-			if(tile.getName().equals("Wall")){
-				return true;
-			}
-		}
-		return false;
+	public boolean checkNorth(){
+		return isWallWithin(WorldSpatial.Direction.NORTH, wallSensitivity);
 	}
 	
-	public boolean checkSouth(HashMap<Coordinate,MapTile> currentView){
-		// Check tiles towards the bottom
-		Coordinate currentPosition = new Coordinate(getPosition());
-		for(int i = 0; i <= wallSensitivity; i++){
-			MapTile tile = currentView.get(new Coordinate(currentPosition.x, currentPosition.y-i));
-			if(tile.getName().equals("Wall")){
-				return true;
-			}
-		}
-		return false;
+	public boolean checkSouth(){
+		return isWallWithin(WorldSpatial.Direction.SOUTH, wallSensitivity);
 	}
 	
 	
@@ -5,15 +5,28 @@ import java.util.HashMap;
 import com.badlogic.gdx.math.Vector2;
 
 import tiles.MapTile;
+import tiles.TileKind;
 import utilities.Coordinate;
 import utilities.PeekTuple;
 import world.Car;
+import world.CarPhysics;
+import world.DistanceFields;
+import world.TileIndex;
+import world.ViewWindow;
+import world.WorldMap;
 import world.WorldSpatial;
 
 public abstract class CarController {
 	
+	// Steps in each WorldSpatial.Direction, by ordinal: EAST, WEST, SOUTH, NORTH
+	private static final int[] DX = {1, -1, 0, 0};
+	private static final int[] DY = {0, 0, -1, 1};
+	
 	private Car car;
 	
+	private final ViewWindow view = new ViewWindow();
+	private ExploredMap explored = null;
+	
 	/**
 	 * Instantiates the car
 	 * @param car
@@ -66,6 +79,25 @@ public abstract class CarController {
 		return this.car.getPosition();
 	}
 	
+	/**
+	 * Retrieves the tile the car is on as a packed coordinate (see Coordinate.pack),
+	 * which unlike getPosition() does not allocate.
+	 */
+	protected long getTilePosition(){
+		return Coordinate.pack(Math.round(this.car.getX()), Math.round(this.car.getY()));
+	}
+	
+	/**
+	 * The car's exact position, without making a string of it as getPosition() does.
+	 */
+	protected float getX(){
+		return this.car.getX();
+	}
+	
+	protected float getY(){
+		return this.car.getY();
+	}
+	
 	/**
 	 * Returns the car's current velocity.
 	 */
@@ -115,7 +147,168 @@ public abstract class CarController {
 	 * Returns the view around your car (this is a 3x3 area)
 	 */
 	protected HashMap<Coordinate,MapTile> getView(){
-		return car.getView();
+		return getViewWindow().toMap();
+	}
+	
+	/**
+	 * Returns the same view as getView() without allocating. The window belongs to this
+	 * controller and is refilled in place on every call, so do not keep it across ticks.
+	 */
+	protected ViewWindow getViewWindow(){
+		car.fillView(view);
+		return view;
+	}
+	
+	/**
+	 * Everything the car has seen since this controller first asked for it, up to date
+	 * with what it can see this tick. It can be called any number of times a tick: the
+	 * tiles it lists as revealed are those that came into view this tick.
+	 */
+	protected ExploredMap getExploredMap(){
+		if(explored == null){
+			explored = new ExploredMap(car.getMap().getWidth(), car.getMap().getHeight());
+			explored.merge(getViewWindow());
+		}
+		return explored;
+	}
+	
+	/**
+	 * The number of tiles between the car and the nearest wall in a direction, found
+	 * without scanning the map. DistanceFields.NONE if there is no wall that way.
+	 * 
+	 * The distance fields of a map take several ints a tile, so on a map too large to
+	 * build them for when it is loaded (see WorldMap.isLarge), this and the queries below
+	 * only look as far as the car can see and are NONE beyond that. Whether the map came
+	 * from a MapCache makes no difference.
+	 */
+	protected int getFreeRun(WorldSpatial.Direction direction){
+		if(isLargeMap()){
+			return scanRun(direction, TileKind.WALL, Car.VIEW_SQUARE);
+		}
+		return car.getDistanceFields().getFreeRun(Math.round(car.getX()), Math.round(car.getY()), direction);
+	}
+	
+	/**
+	 * The number of tiles between the car and the nearest trap in a direction.
+	 * DistanceFields.NONE if there is no trap that way.
+	 */
+	protected int getTrapRun(WorldSpatial.Direction direction){
+		if(isLargeMap()){
+			return scanRun(direction, null, Car.VIEW_SQUARE);
+		}
+		return car.getDistanceFields().getTrapRun(Math.round(car.getX()), Math.round(car.getY()), direction);
+	}
+	
+	/**
+	 * Whether the car's tile or any of the next distance tiles in a direction is a wall.
+	 * Only those tiles are looked at, on any map.
+	 */
+	protected boolean isWallWithin(WorldSpatial.Direction direction, int distance){
+		return kindAt(0, 0) == TileKind.WALL || scanRun(direction, TileKind.WALL, distance) != DistanceFields.NONE;
+	}
+	
+	/**
+	 * Steps to the nearest wall in any direction, 0 if the car is on one.
+	 */
+	protected int getWallDistance(){
+		if(isLargeMap()){
+			return scanDistance(TileKind.WALL, Car.VIEW_SQUARE);
+		}
+		return car.getDistanceFields().getWallDistance(Math.round(car.getX()), Math.round(car.getY()));
+	}
+	
+	/**
+	 * Steps to the nearest trap of a kind in any direction, 0 if the car is on one.
+	 */
+	protected int getTrapDistance(TileKind kind){
+		if(isLargeMap()){
+			if(!kind.isTrap()){
+				throw new IllegalArgumentException(kind + " is not a kind of trap");
+			}
+			return scanDistance(kind, Car.VIEW_SQUARE);
+		}
+		return car.getDistanceFields().getTrapDistance(Math.round(car.getX()), Math.round(car.getY()), kind);
+	}
+	
+	private boolean isLargeMap(){
+		return car.getMap().isLarge();
+	}
+	
+	/**
+	 * The kind of the tile (dx, dy) from the car's.
+	 */
+	private TileKind kindAt(int dx, int dy){
+		return car.getMap().lookUp(Math.round(car.getX()) + dx, Math.round(car.getY()) + dy).getKind();
+	}
+	
+	/**
+	 * Like DistanceFields.getFreeRun, but looking at no more than reach tiles.
+	 * @param kind the kind of tile to stop at, null for a trap of any kind
+	 */
+	private int scanRun(WorldSpatial.Direction direction, TileKind kind, int reach){
+		for(int i = 1; i <= reach; i++){
+			TileKind found = kindAt(DX[direction.ordinal()] * i, DY[direction.ordinal()] * i);
+			if(kind == null ? found.isTrap() : found == kind){
+				return i - 1;
+			}
+		}
+		return DistanceFields.NONE;
+	}
+	
+	/**
+	 * Like DistanceFields.getWallDistance, but looking at no more than reach steps away.
+	 */
+	private int scanDistance(TileKind kind, int reach){
+		for(int distance = 0; distance <= reach; distance++){
+			// The tiles distance steps away, round the diamond
+			for(int dx = -distance; dx <= distance; dx++){
+				int dy = distance - Math.abs(dx);
+				if(kindAt(dx, dy) == kind || kindAt(dx, -dy) == kind){
+					return distance;
+				}
+			}
+		}
+		return DistanceFields.NONE;
+	}
+	
+	/**
+	 * Which way to go from the car's tile to take the cheapest way to an exit, looked up
+	 * in the map's FlowField. Null on an exit or if no exit can be reached. The field
+	 * covers the whole map, so on a paged map the first call builds several ints a tile.
+	 */
+	protected WorldSpatial.Direction getExitDirection(){
+		return car.getMap().getFlowField().getDirection(Math.round(car.getX()), Math.round(car.getY()));
+	}
+	
+	/**
+	 * Where the start, exit and trap tiles of the car's map are, for example to find the
+	 * nearest exit or the lava ahead without searching the map. Building it reads the
+	 * whole map once, but it only holds the tiles it lists.
+	 */
+	protected TileIndex getTileIndex(){
+		return car.getMap().getIndex();
+	}
+	
+	/**
+	 * The whole map the car is on, for controllers that plan ahead.
+	 */
+	protected WorldMap getMap(){
+		return car.getMap();
+	}
+	
+	/**
+	 * A copy of the car's motion model, which can be stepped to see what a sequence of
+	 * controls would do without moving the car.
+	 */
+	protected CarPhysics createPhysicsModel(){
+		return car.createPhysicsModel();
+	}
+	
+	/**
+	 * Resets a model from createPhysicsModel to the car's current motion state.
+	 */
+	protected void copyPhysicsTo(CarPhysics model){
+		car.copyPhysicsTo(model);
 	}
 	
 	/**
@@ -132,6 +325,17 @@ public abstract class CarController {
 		return car.getOrientation();
 	}
 	
+	/**
+	 * Adds what the car can see now to its explored map, if the controller has one, then
+	 * updates the controller. The World calls this once a tick rather than update.
+	 */
+	public final void tick(float delta){
+		if(explored != null){
+			explored.merge(getViewWindow());
+		}
+		update(delta);
+	}
+	
 	/**
 	 * This is the required update step for a vehicle.
 	 */
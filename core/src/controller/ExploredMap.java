@@ -0,0 +1,202 @@
+package controller;
+
+import java.util.Arrays;
+
+import tiles.TileKind;
+import world.Car;
+import world.ViewWindow;
+
+/**
+ * What a controller has learnt about the map so far from what the car could see. Every
+ * tile is UNKNOWN until it has been in view, KNOWN after that, and VISITED once the car
+ * has been on it; the kind of each known tile is remembered, so a trap seen once is
+ * never forgotten.
+ *
+ * Each merge only looks at the tiles that came into view since the last one, which is
+ * nothing while the car stays on the same tile and one edge of the window when it moves
+ * onto the next, and lists the tiles it revealed so that a planner can react to just
+ * those. The state and kinds are kept in one byte per tile, in square chunks made the
+ * first time anything in them is seen, so a controller on a huge map only pays for the
+ * part of it the car has been near.
+ */
+public class ExploredMap {
+
+	public enum Knowledge {UNKNOWN, KNOWN, VISITED};
+
+	private static final Knowledge[] KNOWLEDGE = Knowledge.values();
+	private static final TileKind[] KINDS = TileKind.values();
+	private static final int NOT_MERGED = Integer.MIN_VALUE;
+
+	private static final int CHUNK_SHIFT = 5;
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	private final int width;
+	private final int height;
+	private final int chunksX;
+	// By chunk, null until something in the chunk is seen
+	private final byte[][] knowledge;
+	private final byte[][] kinds;
+	private int knownCount = 0;
+
+	// Tiles revealed by the last merge, as y * width + x
+	private int[] revealed = new int[ViewWindow.SIZE * ViewWindow.SIZE];
+	private int revealedCount = 0;
+
+	// The car's tile at the last merge
+	private int lastX = NOT_MERGED;
+	private int lastY = NOT_MERGED;
+
+	public ExploredMap(int width, int height){
+		this.width = width;
+		this.height = height;
+		this.chunksX = (width + CHUNK_MASK) >> CHUNK_SHIFT;
+		int chunks = chunksX * ((height + CHUNK_MASK) >> CHUNK_SHIFT);
+		this.knowledge = new byte[chunks][];
+		this.kinds = new byte[chunks][];
+	}
+
+	/**
+	 * Adds what is in view to the map. Tiles revealed by this merge replace those listed
+	 * by the last one.
+	 */
+	public void merge(ViewWindow view){
+		revealedCount = 0;
+		int centreX = view.getCentreX();
+		int centreY = view.getCentreY();
+		int movedX = centreX - lastX;
+		int movedY = centreY - lastY;
+		int radius = Car.VIEW_SQUARE;
+		if(lastX == NOT_MERGED || Math.abs(movedX) >= ViewWindow.SIZE || Math.abs(movedY) >= ViewWindow.SIZE){
+			mergeRect(view, centreX - radius, centreX + radius, centreY - radius, centreY + radius);
+		}
+		else{
+			// The columns that came into view, then the rows, leaving out the corner
+			// they share
+			if(movedX > 0){
+				mergeRect(view, centreX + radius - movedX + 1, centreX + radius, centreY - radius, centreY + radius);
+			}
+			else if(movedX < 0){
+				mergeRect(view, centreX - radius, centreX - radius - movedX - 1, centreY - radius, centreY + radius);
+			}
+			int fromX = movedX > 0 ? centreX - radius : centreX - radius - movedX;
+			int toX = movedX > 0 ? centreX + radius - movedX : centreX + radius;
+			if(movedY > 0){
+				mergeRect(view, fromX, toX, centreY + radius - movedY + 1, centreY + radius);
+			}
+			else if(movedY < 0){
+				mergeRect(view, fromX, toX, centreY - radius, centreY - radius - movedY - 1);
+			}
+		}
+		lastX = centreX;
+		lastY = centreY;
+		if(contains(centreX, centreY)){
+			// In view, so already in a chunk
+			knowledge[chunk(centreX, centreY)][cell(centreX, centreY)] = (byte) Knowledge.VISITED.ordinal();
+		}
+	}
+
+	private void mergeRect(ViewWindow view, int fromX, int toX, int fromY, int toY){
+		for(int y = Math.max(fromY, 0); y <= Math.min(toY, height - 1); y++){
+			for(int x = Math.max(fromX, 0); x <= Math.min(toX, width - 1); x++){
+				int chunk = chunk(x, y);
+				if(knowledge[chunk] == null){
+					knowledge[chunk] = new byte[CHUNK_SIZE * CHUNK_SIZE];
+					kinds[chunk] = new byte[CHUNK_SIZE * CHUNK_SIZE];
+				}
+				int cell = cell(x, y);
+				if(knowledge[chunk][cell] == Knowledge.UNKNOWN.ordinal()){
+					knowledge[chunk][cell] = (byte) Knowledge.KNOWN.ordinal();
+					kinds[chunk][cell] = (byte) view.getKindAbsolute(x, y).ordinal();
+					knownCount++;
+					if(revealedCount == revealed.length){
+						revealed = Arrays.copyOf(revealed, revealedCount * 2);
+					}
+					revealed[revealedCount++] = y * width + x;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Forgets everything, as if no view had been merged yet.
+	 */
+	public void clear(){
+		Arrays.fill(knowledge, null);
+		Arrays.fill(kinds, null);
+		knownCount = 0;
+		revealedCount = 0;
+		lastX = NOT_MERGED;
+		lastY = NOT_MERGED;
+	}
+
+	/**
+	 * How much is known about (x, y), UNKNOWN off the map.
+	 */
+	public Knowledge getKnowledge(int x, int y){
+		if(!contains(x, y) || knowledge[chunk(x, y)] == null){
+			return Knowledge.UNKNOWN;
+		}
+		return KNOWLEDGE[knowledge[chunk(x, y)][cell(x, y)]];
+	}
+
+	public boolean isKnown(int x, int y){
+		return getKnowledge(x, y) != Knowledge.UNKNOWN;
+	}
+
+	public boolean isVisited(int x, int y){
+		return getKnowledge(x, y) == Knowledge.VISITED;
+	}
+
+	/**
+	 * The kind of tile at (x, y), null if it is not known yet.
+	 */
+	public TileKind getKind(int x, int y){
+		return isKnown(x, y) ? KINDS[kinds[chunk(x, y)][cell(x, y)]] : null;
+	}
+
+	/**
+	 * How many tiles have been seen so far.
+	 */
+	public int getKnownCount(){
+		return knownCount;
+	}
+
+	/**
+	 * How many tiles the last merge revealed.
+	 */
+	public int getRevealedCount(){
+		return revealedCount;
+	}
+
+	/**
+	 * The x coordinate of the i-th tile revealed by the last merge.
+	 */
+	public int getRevealedX(int i){
+		return revealed[i] % width;
+	}
+
+	public int getRevealedY(int i){
+		return revealed[i] / width;
+	}
+
+	public int getWidth(){
+		return width;
+	}
+
+	public int getHeight(){
+		return height;
+	}
+
+	private boolean contains(int x, int y){
+		return x >= 0 && y >= 0 && x < width && y < height;
+	}
+
+	private int chunk(int x, int y){
+		return (y >> CHUNK_SHIFT) * chunksX + (x >> CHUNK_SHIFT);
+	}
+
+	private static int cell(int x, int y){
+		return ((y & CHUNK_MASK) << CHUNK_SHIFT) | (x & CHUNK_MASK);
+	}
+}
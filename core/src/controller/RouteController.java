@@ -0,0 +1,299 @@
+package controller;
+
+import planning.Route;
+import planning.RoutePlanner;
+import world.Car;
+import world.CarPhysics;
+import world.WorldSpatial;
+
+/**
+ * Drives straight to the exit along a route from RoutePlanner, instead of following walls.
+ *
+ * Every tick it tries a handful of ways of steering over the next second or so on a copy of
+ * the car's motion model: going straight, or turning left or right for a few ticks and then
+ * straightening up. Each try is scored on how far along the route it gets and how well lined
+ * up with the route it ends, and the first tick of the best one is applied to the car.
+ * Trying the real physics means the car takes turns it can actually make, at a speed it can
+ * brake down to, without hand tuned turning points.
+ *
+ * Trying them all takes a few hundred steps of the model, so the best way is kept and
+ * followed, turning for as many ticks as it said, until the car moves on to the next tile
+ * of the route or RESCORE_TICKS have gone by, and only then are they all tried again.
+ *
+ * The route is planned again whenever the car finds itself off it.
+ */
+public class RouteController extends CarController {
+
+	// How many ticks ahead each way of steering is tried
+	private static final int HORIZON = 40;
+	// Ways of steering tried: turn for 0, STEER_STEP, 2 * STEER_STEP ... ticks then go straight
+	private static final int STEER_STEP = 3;
+	private static final int MAX_STEER_TICKS = 30;
+	// Ticks the best way of steering is followed for before they are all tried again
+	private static final int RESCORE_TICKS = 6;
+
+	// Speeds in tiles per second
+	private static final float CRUISE_SPEED = 4.5f;
+	private static final float TURN_SPEED = 1.2f;
+	// How hard the car plans to slow down for a turn, gentler than full braking
+	private static final float DECELERATION = 1.5f;
+	// How far over the target speed the car goes before it brakes rather than coasts
+	private static final float BRAKE_MARGIN = 0.3f;
+	// Misalignment beyond which the car slows down as if for a turn, in degrees
+	private static final float MISALIGNED = 20f;
+
+	// Scores
+	private static final float PROGRESS_SCORE = 10f;
+	private static final float LATERAL_PENALTY = 3f;
+	private static final float HEADING_PENALTY = 1 / 30f;
+	private static final float STEER_PENALTY = 0.01f;
+	private static final float OFF_ROUTE_PENALTY = 2f;
+	private static final float BLOCKED_SCORE = -1000f;
+	private static final float ESCAPED_SCORE = 1000f;
+
+	// Slower than this counts as not moving
+	private static final float STOPPED_SPEED = 0.01f;
+	// Ticks without moving before the car backs up, and for how long it does
+	private static final int STUCK_TICKS = 30;
+	private static final int REVERSE_TICKS = 20;
+
+	private enum Steer {STRAIGHT, LEFT, RIGHT};
+	private enum Throttle {ACCELERATE, COAST, BRAKE};
+
+	private final RoutePlanner planner;
+	private final Route route;
+	private final CarPhysics model;
+
+	private int lastIndex = Route.NOT_ON_ROUTE;
+	// The way of steering being followed, found on the route tile scoredIndex
+	private Steer plannedSteer = Steer.STRAIGHT;
+	private int plannedSteerTicks = 0;
+	private int scoredIndex = Route.NOT_ON_ROUTE;
+	private int ticksSinceScored = 0;
+	private int stoppedTicks = 0;
+	private int reversingTicks = 0;
+
+	public RouteController(Car car) {
+		super(car);
+		planner = new RoutePlanner(getMap());
+		route = new Route(getMap().getTileGrid().getWidth(), getMap().getTileGrid().getHeight());
+		model = createPhysicsModel();
+	}
+
+	@Override
+	public void update(float delta) {
+		if(reversingTicks > 0){
+			reversingTicks--;
+			applyReverseAcceleration();
+			return;
+		}
+		if(getVelocity() < STOPPED_SPEED && ++stoppedTicks > STUCK_TICKS && lastIndex != Route.NOT_ON_ROUTE){
+			// Pinned against a wall, back away from it and try again
+			stoppedTicks = 0;
+			reversingTicks = REVERSE_TICKS;
+			route.clear();
+			scoredIndex = Route.NOT_ON_ROUTE;
+			return;
+		}
+		if(getVelocity() >= STOPPED_SPEED){
+			stoppedTicks = 0;
+		}
+
+		copyPhysicsTo(model);
+		int index = routeIndex(model);
+		if(index == Route.NOT_ON_ROUTE){
+			if(!planner.plan(Math.round(model.getX()), Math.round(model.getY()), getOrientation(), route)){
+				// Nowhere to go
+				applyBrake();
+				return;
+			}
+			index = 0;
+			scoredIndex = Route.NOT_ON_ROUTE;
+		}
+		lastIndex = index;
+
+		if(index != scoredIndex || ticksSinceScored >= RESCORE_TICKS){
+			chooseSteering(index, delta);
+		}
+		Steer steer = ticksSinceScored < plannedSteerTicks ? plannedSteer : Steer.STRAIGHT;
+		ticksSinceScored++;
+
+		copyPhysicsTo(model);
+		switch(throttle(model, index)){
+		case ACCELERATE:
+			applyForwardAcceleration();
+			break;
+		case BRAKE:
+			applyBrake();
+			break;
+		default:
+			break;
+		}
+		if(steer == Steer.LEFT){
+			turnLeft(delta);
+		}
+		else if(steer == Steer.RIGHT){
+			turnRight(delta);
+		}
+	}
+
+	/**
+	 * Tries every way of steering from where the car is now and keeps the best.
+	 */
+	private void chooseSteering(int index, float delta){
+		Steer bestSteer = Steer.STRAIGHT;
+		int bestTicks = 0;
+		float bestScore = Float.NEGATIVE_INFINITY;
+		for(int ticks = 0; ticks <= MAX_STEER_TICKS; ticks += STEER_STEP){
+			for(Steer steer : Steer.values()){
+				if(steer == Steer.STRAIGHT && ticks > 0 || steer != Steer.STRAIGHT && ticks == 0){
+					continue;
+				}
+				copyPhysicsTo(model);
+				float score = rollout(steer, ticks, index, delta) - ticks * STEER_PENALTY;
+				if(score > bestScore){
+					bestScore = score;
+					bestSteer = steer;
+					bestTicks = ticks;
+				}
+			}
+		}
+		plannedSteer = bestSteer;
+		plannedSteerTicks = bestTicks;
+		scoredIndex = index;
+		ticksSinceScored = 0;
+	}
+
+	/**
+	 * Runs the model for HORIZON ticks, steering one way for steerTicks and then going
+	 * straight, and scores where it ends up.
+	 */
+	private float rollout(Steer steer, int steerTicks, int index, float delta){
+		float penalty = 0;
+		for(int t = 0; t < HORIZON; t++){
+			switch(throttle(model, index)){
+			case ACCELERATE:
+				model.applyForwardAcceleration();
+				break;
+			case BRAKE:
+				model.brake();
+				break;
+			default:
+				break;
+			}
+			if(t < steerTicks){
+				if(steer == Steer.LEFT){
+					model.turnLeft(delta);
+				}
+				else if(steer == Steer.RIGHT){
+					model.turnRight(delta);
+				}
+			}
+			if(!model.step(delta)){
+				return BLOCKED_SCORE + t;
+			}
+			int next = routeIndex(model);
+			if(next == Route.NOT_ON_ROUTE){
+				penalty += OFF_ROUTE_PENALTY;
+			}
+			else{
+				index = next;
+				if(index == route.getLength() - 1){
+					return ESCAPED_SCORE - t;
+				}
+			}
+		}
+		return PROGRESS_SCORE * progress(model, index)
+				- LATERAL_PENALTY * Math.abs(lateralOffset(model, index))
+				- HEADING_PENALTY * headingError(model, index)
+				- penalty;
+	}
+
+	/**
+	 * Accelerates up to a speed from which the car can slow down to TURN_SPEED by the next
+	 * turn on the route, and brakes if it is well over it.
+	 */
+	private Throttle throttle(CarPhysics car, int index){
+		float toTurn = route.getNextTurn(index) - progress(car, index);
+		float target = (float) Math.sqrt(TURN_SPEED * TURN_SPEED + 2 * DECELERATION * Math.max(0, toTurn - 0.5f));
+		if(target > CRUISE_SPEED){
+			target = CRUISE_SPEED;
+		}
+		if(headingError(car, index) > MISALIGNED){
+			target = TURN_SPEED;
+		}
+		float speed = car.getSpeed();
+		if(speed < target){
+			return Throttle.ACCELERATE;
+		}
+		return speed > target + BRAKE_MARGIN ? Throttle.BRAKE : Throttle.COAST;
+	}
+
+	private int routeIndex(CarPhysics car){
+		return route.indexOf(Math.round(car.getX()), Math.round(car.getY()));
+	}
+
+	/**
+	 * How far along the route the car is, in tiles, counting how far across its tile it is.
+	 */
+	private float progress(CarPhysics car, int index){
+		float along = offset(car, index, route.getDirection(index));
+		return index + Math.max(-0.5f, Math.min(0.5f, along));
+	}
+
+	/**
+	 * How far the car is to the side of the middle of the route.
+	 */
+	private float lateralOffset(CarPhysics car, int index){
+		return offset(car, index, leftOf(route.getDirection(index)));
+	}
+
+	private static WorldSpatial.Direction leftOf(WorldSpatial.Direction direction){
+		switch(direction){
+		case EAST:
+			return WorldSpatial.Direction.NORTH;
+		case NORTH:
+			return WorldSpatial.Direction.WEST;
+		case WEST:
+			return WorldSpatial.Direction.SOUTH;
+		default:
+			return WorldSpatial.Direction.EAST;
+		}
+	}
+
+	private float offset(CarPhysics car, int index, WorldSpatial.Direction direction){
+		float dx = car.getX() - route.getX(index);
+		float dy = car.getY() - route.getY(index);
+		switch(direction){
+		case EAST:
+			return dx;
+		case WEST:
+			return -dx;
+		case NORTH:
+			return dy;
+		default:
+			return -dy;
+		}
+	}
+
+	/**
+	 * Degrees between where the car is heading and where the route goes, 0 to 180.
+	 */
+	private float headingError(CarPhysics car, int index){
+		float difference = Math.abs(car.getAngle() - angleOf(route.getDirection(index))) % 360;
+		return difference > 180 ? 360 - difference : difference;
+	}
+
+	private static float angleOf(WorldSpatial.Direction direction){
+		switch(direction){
+		case EAST:
+			return WorldSpatial.EAST_DEGREE_MIN;
+		case NORTH:
+			return WorldSpatial.NORTH_DEGREE;
+		case WEST:
+			return WorldSpatial.WEST_DEGREE;
+		default:
+			return WorldSpatial.SOUTH_DEGREE;
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A controller that works as a state machine moved from one state to another.
+ */
+@Name("driving.ControllerState")
+@Label("Controller State Change")
+@Category({"Driving", "Controller"})
+@Description("A controller changed state")
+@StackTrace(false)
+public class ControllerStateEvent extends Event {
+
+	@Label("Controller")
+	public Class<?> controller;
+
+	@Label("From")
+	public String from;
+
+	@Label("To")
+	public String to;
+
+	@Label("Tile X")
+	public int tileX;
+
+	@Label("Tile Y")
+	public int tileY;
+}
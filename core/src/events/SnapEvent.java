@@ -0,0 +1,29 @@
+package events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Turning brought the car close enough to a new orientation that it snapped onto it.
+ */
+@Name("driving.Snap")
+@Label("Orientation Snap")
+@Category({"Driving", "Car"})
+@Description("The car snapped onto a new orientation while turning")
+@StackTrace(false)
+public class SnapEvent extends Event {
+
+	@Label("From")
+	public String from;
+
+	@Label("To")
+	public String to;
+
+	@Label("Angle")
+	@Description("The car's angle after the snap, in degrees")
+	public float angle;
+}
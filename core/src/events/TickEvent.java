@@ -0,0 +1,47 @@
+package events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One tick of a World, from the start of the controllers' updates to the end of the
+ * cars', with where the first car was when it ended.
+ */
+@Name("driving.Tick")
+@Label("Tick")
+@Category({"Driving", "World"})
+@Description("One tick of the simulation")
+@StackTrace(false)
+public class TickEvent extends Event {
+
+	@Label("Controller")
+	public Class<?> controller;
+
+	@Label("Simulated Time")
+	@Description("Seconds of simulated time at the end of the tick")
+	public float simSeconds;
+
+	@Label("Tile X")
+	public int tileX;
+
+	@Label("Tile Y")
+	public int tileY;
+
+	@Label("Tile")
+	public String tile;
+
+	@Label("Speed")
+	@Description("Tiles per second")
+	public float speed;
+
+	@Label("Health")
+	public int health;
+
+	@Label("Cars")
+	@Description("Cars still running during the tick")
+	public int cars;
+}
@@ -0,0 +1,40 @@
+package events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A trap the car was standing on was applied to it.
+ */
+@Name("driving.Trap")
+@Label("Trap Applied")
+@Category({"Driving", "Car"})
+@Description("A trap was applied to the car standing on it")
+@StackTrace(false)
+public class TrapEvent extends Event {
+
+	@Label("Trap Type")
+	public String trapType;
+
+	@Label("Tile X")
+	public int tileX;
+
+	@Label("Tile Y")
+	public int tileY;
+
+	@Label("Speed Before")
+	public float speedBefore;
+
+	@Label("Speed After")
+	public float speedAfter;
+
+	@Label("Health Before")
+	public int healthBefore;
+
+	@Label("Health After")
+	public int healthAfter;
+}
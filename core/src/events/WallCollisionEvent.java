@@ -0,0 +1,33 @@
+package events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The car ran into a wall, or off the map, and was stopped.
+ */
+@Name("driving.WallCollision")
+@Label("Wall Collision")
+@Category({"Driving", "Car"})
+@Description("The car ran into a wall and was stopped")
+@StackTrace(false)
+public class WallCollisionEvent extends Event {
+
+	@Label("X")
+	public float x;
+
+	@Label("Y")
+	public float y;
+
+	@Label("Speed")
+	@Description("Tiles per second just before the collision")
+	public float speed;
+
+	@Label("Health")
+	@Description("Health after the damage from the collision")
+	public int health;
+}
@@ -2,6 +2,6 @@ package exceptions;
 
 public class NoStartLocationException extends Exception {
 	public NoStartLocationException(){
-		System.out.println("Start location not defined! Invalid map.tmx!");
+		super("Start location not defined! Invalid map.tmx!");
 	}
 }
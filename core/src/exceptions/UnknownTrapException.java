@@ -0,0 +1,12 @@
+package exceptions;
+
+/**
+ * Thrown when a map uses a trap type that no TrapType is registered for.
+ */
+public class UnknownTrapException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	public UnknownTrapException(String type, Throwable cause){
+		super("Unknown trap type \"" + type + "\"! Invalid map.tmx!", cause);
+	}
+}
@@ -7,18 +7,25 @@
 
 package mycontroller;
 
-import java.util.HashMap;
-import java.util.LinkedList;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import static org.apache.logging.log4j.util.Unbox.box;
 
 import controller.CarController;
+import controller.ExploredMap;
+import events.ControllerStateEvent;
 import tiles.MapTile;
+import tiles.TileKind;
 import utilities.Coordinate;
 import world.Car;
+import world.ViewWindow;
 import world.WorldSpatial;
 import world.WorldSpatial.Direction;
 
 public class MyAIController extends CarController {
 
+	private static Logger logger = LogManager.getLogger();
+
 	// How many minimum units the wall is away from the player.
 	private int wallSensitivity = 2;
 
@@ -70,7 +77,9 @@ public class MyAIController extends CarController {
 	};
 
 	private State state = State.IDLE;
-	private String bestPosition_string;
+	private float bestX;
+	private float bestY;
+	private long bestTile; // packed coordinate of the tile (bestX, bestY) is on
 	private int bestScore = 100;
 
 	// Car Speed to move at
@@ -87,24 +96,24 @@ public class MyAIController extends CarController {
 	public void update(float delta) {
 
 		// Gets what the car can see
-		HashMap<Coordinate, MapTile> currentView = getView();
+		ViewWindow currentView = getViewWindow();
 		checkStateChange();
 
-		if (state == State.IDLE && isTrapAhead(currentView, getOrientation())) {
+		if (state == State.IDLE && isTrapAhead(getOrientation())) {
 
-			int roadWidth = getRoadWidth(getOrientation(), currentView);
-			LinkedList<MapTile> tilesRight = getViewOfASide(RelativeDirection.RIGHT, getOrientation(), currentView);
+			int roadWidth = getRoadWidth(getOrientation());
+			WorldSpatial.Direction right = getDirectionOfASide(RelativeDirection.RIGHT, getOrientation());
 			// the road is too narrow to turn or the tile on the right side is
 			// trap
 			// just go through
-			if (roadWidth == 1 || tilesRight.get(0).getName().equals("Trap")) {
+			if (roadWidth == 1 || getTileInDirection(right, 1, currentView).isTrap()) {
 				setState(State.PASSING);
 				return;
 			}
 
 			directionAfterTurnRight = getDirectionAfterTurnRight(getOrientation());
 			setState(State.TURNING1);
-			bestPosition_string = getPosition();
+			rememberBestPosition();
 
 			bestScore = scoreOfTrapsOnOneSide(RelativeDirection.LEFT, currentView, getOrientation());
 			return;
@@ -123,7 +132,7 @@ public class MyAIController extends CarController {
 		}
 		if (state == State.SEARCHING) {
 
-			if (isTrapOrWallAhead(getOrientation(), currentView)) {
+			if (isTrapOrWallAhead(getOrientation())) {
 				setState(State.BACK);
 				return;
 			}
@@ -138,16 +147,14 @@ public class MyAIController extends CarController {
 				directionAfterTurnLeft = getDirectionAfterTurnLeft(getOrientation());
 				return;
 			}
-			Coordinate currentPosition = new Coordinate(getPosition());
-			Coordinate bestPosition   = new Coordinate(bestPosition_string);
-			if (currentPosition.equals(bestPosition)) {
-				bestPosition_string = getPosition();
+			if (getTilePosition() == bestTile) {
+				rememberBestPosition();
 			}
 			// better place with less traps
 			if (score < bestScore) {
 
 				bestScore = score;
-				bestPosition_string = getPosition();
+				rememberBestPosition();
 			}
 			return;
 		}
@@ -155,7 +162,7 @@ public class MyAIController extends CarController {
 		// go back to the best place
 		if (state == State.BACK) {
 
-			if (shouldBrake(getPosition(), bestPosition_string, getVelocity(), getOrientation())) {
+			if (shouldBrake(getX(), getY(), bestX, bestY, getVelocity(), getOrientation())) {
 				setState(State.STOP);
 
 			} else {
@@ -173,7 +180,6 @@ public class MyAIController extends CarController {
 				applyBrake();
 				return;
 			} else {
-				Coordinate currentPosition = new Coordinate(getPosition());
 				setState(State.TURNING2);
 				directionAfterTurnLeft = getDirectionAfterTurnLeft(getOrientation());
 				return;
@@ -231,7 +237,7 @@ public class MyAIController extends CarController {
 				lastTurnDirection = RelativeDirection.LEFT;
 				applyLeftTurn(getOrientation(), delta);
 			}
-			if (checkNorth(currentView)) {
+			if (checkNorth()) {
 				// Turn right until we go back to east!
 				if (!getOrientation().equals(WorldSpatial.Direction.EAST)) {
 					lastTurnDirection = RelativeDirection.RIGHT;
@@ -251,14 +257,14 @@ public class MyAIController extends CarController {
 				applyRightTurn(getOrientation(), delta);
 			} else if (isTurningLeft) {
 				// Apply the left turn if you are not currently near a wall.
-				if (!checkFollowingWall(getOrientation(), currentView)) {
+				if (!checkFollowingWall(getOrientation())) {
 					applyLeftTurn(getOrientation(), delta);
 				} else {
 					isTurningLeft = false;
 				}
 			}
 			// Try to determine whether or not the car is next to a wall.
-			else if (checkFollowingWall(getOrientation(), currentView)) {
+			else if (checkFollowingWall(getOrientation())) {
 				// Maintain some velocity
 				// the car_speed is intentionally dropped down to avoid run into
 				// the trap
@@ -266,7 +272,7 @@ public class MyAIController extends CarController {
 					applyForwardAcceleration();
 				}
 				// If there is wall ahead, turn right!
-				if (checkWallAhead(getOrientation(), currentView)) {
+				if (checkWallAhead(getOrientation())) {
 					lastTurnDirection = RelativeDirection.RIGHT;
 					isTurningRight = true;
 
@@ -453,20 +459,19 @@ public class MyAIController extends CarController {
 	 * 
 	 * @param orientation
 	 *            the orientation we are in based on WorldSpatial
-	 * @param currentView
 	 *            what the car can currently see
 	 * @return
 	 */
-	private boolean checkWallAhead(WorldSpatial.Direction orientation, HashMap<Coordinate, MapTile> currentView) {
+	private boolean checkWallAhead(WorldSpatial.Direction orientation) {
 		switch (orientation) {
 		case EAST:
-			return checkEast(currentView);
+			return checkEast();
 		case NORTH:
-			return checkNorth(currentView);
+			return checkNorth();
 		case SOUTH:
-			return checkSouth(currentView);
+			return checkSouth();
 		case WEST:
-			return checkWest(currentView);
+			return checkWest();
 		default:
 			return false;
 
@@ -477,20 +482,19 @@ public class MyAIController extends CarController {
 	 * Check if the wall is on your left hand side given your orientation
 	 * 
 	 * @param orientation
-	 * @param currentView
 	 * @return
 	 */
-	private boolean checkFollowingWall(WorldSpatial.Direction orientation, HashMap<Coordinate, MapTile> currentView) {
+	private boolean checkFollowingWall(WorldSpatial.Direction orientation) {
 
 		switch (orientation) {
 		case EAST:
-			return checkNorth(currentView);
+			return checkNorth();
 		case NORTH:
-			return checkWest(currentView);
+			return checkWest();
 		case SOUTH:
-			return checkEast(currentView);
+			return checkEast();
 		case WEST:
-			return checkSouth(currentView);
+			return checkSouth();
 		default:
 			return false;
 		}
@@ -498,87 +502,64 @@ public class MyAIController extends CarController {
 	}
 
 	/**
-	 * Method below just iterates through the list and check in the correct
-	 * coordinates. i.e. Given your current position is 10,10 checkEast will
+	 * Methods below scan the next few tiles in the correct direction for a wall.
+	 * i.e. Given your current position is 10,10 checkEast will
 	 * check up to wallSensitivity amount of tiles to the right. checkWest will
 	 * check up to wallSensitivity amount of tiles to the left. checkNorth will
 	 * check up to wallSensitivity amount of tiles to the top. checkSouth will
 	 * check up to wallSensitivity amount of tiles below.
 	 */
-	public boolean checkEast(HashMap<Coordinate, MapTile> currentView) {
-		// Check tiles to my right
-		Coordinate currentPosition = new Coordinate(getPosition());
-		for (int i = 0; i <= wallSensitivity; i++) {
-			MapTile tile = currentView.get(new Coordinate(currentPosition.x + i, currentPosition.y));
-			if (tile.getName().equals("Wall")) {
-				return true;
-			}
-		}
-		return false;
+	public boolean checkEast() {
+		return isWallWithin(WorldSpatial.Direction.EAST, wallSensitivity);
 	}
 
-	public boolean checkWest(HashMap<Coordinate, MapTile> currentView) {
-		// Check tiles to my left
-		Coordinate currentPosition = new Coordinate(getPosition());
-		for (int i = 0; i <= wallSensitivity; i++) {
-			MapTile tile = currentView.get(new Coordinate(currentPosition.x - i, currentPosition.y));
-			if (tile.getName().equals("Wall")) {
-				return true;
-			}
-		}
-		return false;
+	public boolean checkWest() {
+		return isWallWithin(WorldSpatial.Direction.WEST, wallSensitivity);
 	}
 
-	public boolean checkNorth(HashMap<Coordinate, MapTile> currentView) {
-		// Check tiles to towards the top
-		Coordinate currentPosition = new Coordinate(getPosition());
-		for (int i = 0; i <= wallSensitivity; i++) {
-			MapTile tile = currentView.get(new Coordinate(currentPosition.x, currentPosition.y + i));
-			if (tile.getName().equals("Wall")) {
-				return true;
-			}
-		}
-		return false;
+	public boolean checkNorth() {
+		return isWallWithin(WorldSpatial.Direction.NORTH, wallSensitivity);
 	}
 
-	public boolean checkSouth(HashMap<Coordinate, MapTile> currentView) {
-		// Check tiles towards the bottom
-		Coordinate currentPosition = new Coordinate(getPosition());
-		for (int i = 0; i <= wallSensitivity; i++) {
-			MapTile tile = currentView.get(new Coordinate(currentPosition.x, currentPosition.y - i));
-			if (tile.getName().equals("Wall")) {
-				return true;
-			}
-		}
-		return false;
+	public boolean checkSouth() {
+		return isWallWithin(WorldSpatial.Direction.SOUTH, wallSensitivity);
 	}
 
 	/* OWN METHODS */
 
 	private void setState(State stateToBe) {
+		if(stateToBe != state){
+			ControllerStateEvent event = new ControllerStateEvent();
+			if(event.shouldCommit()){
+				event.controller = getClass();
+				event.from = state.name();
+				event.to = stateToBe.name();
+				event.tileX = Math.round(getX());
+				event.tileY = Math.round(getY());
+				event.commit();
+			}
+		}
 		this.state = stateToBe;
 	}
 
+	private void rememberBestPosition() {
+		bestX = getX();
+		bestY = getY();
+		bestTile = getTilePosition();
+	}
+
 	/**
 	 * Check if trap is ahead
 	 * 
 	 * @param currentView
 	 * @return
 	 */
-	private boolean isTrapAhead(HashMap<Coordinate, MapTile> currentView, WorldSpatial.Direction orientation) {
-		LinkedList<MapTile> tilesAhead = getViewOfASide(RelativeDirection.FRONT, orientation, currentView);
+	private boolean isTrapAhead(WorldSpatial.Direction orientation) {
+		WorldSpatial.Direction ahead = getDirectionOfASide(RelativeDirection.FRONT, orientation);
 		int sensity = 2;
-		for (int i = 0; i < sensity; i++) {
-			MapTile tile = tilesAhead.get(i);
-			if (tile.getName().equals("Trap")) {
-				return true;
-			}
-			// traps behind the wall do not count
-			else if (tile.getName().equals("Wall")) {
-				return false;
-			}
-		}
-		return false;
+		int trapRun = getKnownTrapRun(ahead);
+		// traps behind the wall do not count
+		return trapRun < sensity && trapRun < getFreeRun(ahead);
 	}
 
 	/**
@@ -587,7 +568,7 @@ public class MyAIController extends CarController {
 	 * @param currentView
 	 * @return
 	 */
-	private boolean isInDeadEnd(HashMap<Coordinate, MapTile> currentView) {
+	private boolean isInDeadEnd(ViewWindow currentView) {
 		// TODO
 		return false;
 	}
@@ -598,15 +579,15 @@ public class MyAIController extends CarController {
 	 * @param currentView
 	 * @return
 	 */
-	private int scoreOfTrapsOnOneSide(RelativeDirection relativeDirection, HashMap<Coordinate, MapTile> currentView,
+	private int scoreOfTrapsOnOneSide(RelativeDirection relativeDirection, ViewWindow currentView,
 			Direction orientation) {
 		int score = 0;
-		LinkedList<MapTile> tiles = getViewOfASide(relativeDirection, orientation, currentView);
-		for (int i = 0; i < tiles.size(); i++) {
-			MapTile tile = tiles.get(i);
-			if (tile.getName().equals("Trap")) {
+		WorldSpatial.Direction side = getDirectionOfASide(relativeDirection, orientation);
+		for (int i = 0; i < Car.VIEW_SQUARE; i++) {
+			MapTile tile = getTileInDirection(side, i + 1, currentView);
+			if (tile.isTrap()) {
 				score += 1;
-			} else if (tile.getName().equals("Wall")) {
+			} else if (tile.isWall()) {
 				score += 100;
 			}
 		}
@@ -641,21 +622,46 @@ public class MyAIController extends CarController {
 	 * @param currentView
 	 * @return
 	 */
-	private boolean isTrapOrWallAhead(WorldSpatial.Direction orientation, HashMap<Coordinate, MapTile> currentView) {
+	private boolean isTrapOrWallAhead(WorldSpatial.Direction orientation) {
 		int sensity = 1;
 
-		LinkedList<MapTile> tilesAhead = getViewOfASide(RelativeDirection.FRONT, orientation, currentView);
-		for (int i = 0; i < sensity; i++) {
-			MapTile tile = tilesAhead.get(i);
-			if (tile.getName().equals("Trap")) {
-				return true;
+		WorldSpatial.Direction ahead = getDirectionOfASide(RelativeDirection.FRONT, orientation);
+		return getKnownTrapRun(ahead) < sensity || getFreeRun(ahead) < sensity;
+	}
+
+	/**
+	 * The number of tiles between the car and the nearest trap it has seen in a
+	 * direction, looked up in the explored map so traps are only found once.
+	 * Car.VIEW_SQUARE if there is none within sight.
+	 * 
+	 * @param direction
+	 * @return
+	 */
+	private int getKnownTrapRun(WorldSpatial.Direction direction) {
+		ExploredMap explored = getExploredMap();
+		int x = Math.round(getX());
+		int y = Math.round(getY());
+		for (int i = 1; i <= Car.VIEW_SQUARE; i++) {
+			TileKind kind;
+			switch (direction) {
+			case EAST:
+				kind = explored.getKind(x + i, y);
+				break;
+			case WEST:
+				kind = explored.getKind(x - i, y);
+				break;
+			case NORTH:
+				kind = explored.getKind(x, y + i);
+				break;
+			default:
+				kind = explored.getKind(x, y - i);
+				break;
 			}
-			// traps behind the wall do not count
-			else if (tile.getName().equals("Wall")) {
-				return true;
+			if (kind != null && kind.isTrap()) {
+				return i - 1;
 			}
 		}
-		return false;
+		return Car.VIEW_SQUARE;
 	}
 
 	/**
@@ -665,7 +671,7 @@ public class MyAIController extends CarController {
 	 * @param currentView
 	 * @return
 	 */
-	private boolean isOkToTurnRight(WorldSpatial.Direction orientation, HashMap<Coordinate, MapTile> currentView) {
+	private boolean isOkToTurnRight(WorldSpatial.Direction orientation, ViewWindow currentView) {
 		// TODO
 		return false;
 	}
@@ -733,136 +739,74 @@ public class MyAIController extends CarController {
 		}
 	}
 
-	private LinkedList<MapTile> getViewOfASide(RelativeDirection relativeDirection, WorldSpatial.Direction orientation,
-			HashMap<Coordinate, MapTile> currentView) {
-		switch (orientation) {
-		case WEST:
-			switch (relativeDirection) {
-			case FRONT:
-				return getViewOfADirection(WorldSpatial.Direction.WEST, currentView);
-			case BACK:
-				return getViewOfADirection(WorldSpatial.Direction.EAST, currentView);
-			case RIGHT:
-				return getViewOfADirection(WorldSpatial.Direction.NORTH, currentView);
-			case LEFT:
-				return getViewOfADirection(WorldSpatial.Direction.SOUTH, currentView);
-			}
-		case EAST:
-			switch (relativeDirection) {
-			case FRONT:
-				return getViewOfADirection(WorldSpatial.Direction.EAST, currentView);
-			case BACK:
-				return getViewOfADirection(WorldSpatial.Direction.WEST, currentView);
-			case RIGHT:
-				return getViewOfADirection(WorldSpatial.Direction.SOUTH, currentView);
-			case LEFT:
-				return getViewOfADirection(WorldSpatial.Direction.NORTH, currentView);
-			}
-		case SOUTH:
-			switch (relativeDirection) {
-			case FRONT:
-				return getViewOfADirection(WorldSpatial.Direction.SOUTH, currentView);
-			case BACK:
-				return getViewOfADirection(WorldSpatial.Direction.NORTH, currentView);
-			case RIGHT:
-				return getViewOfADirection(WorldSpatial.Direction.WEST, currentView);
-			case LEFT:
-				return getViewOfADirection(WorldSpatial.Direction.EAST, currentView);
-			}
-		case NORTH:
-			switch (relativeDirection) {
-			case FRONT:
-				return getViewOfADirection(WorldSpatial.Direction.NORTH, currentView);
-			case BACK:
-				return getViewOfADirection(WorldSpatial.Direction.SOUTH, currentView);
-			case RIGHT:
-				return getViewOfADirection(WorldSpatial.Direction.EAST, currentView);
-			case LEFT:
-				return getViewOfADirection(WorldSpatial.Direction.WEST, currentView);
-			}
-
+	/**
+	 * get the direction(east, west, south, north) of a side of the car
+	 * 
+	 * @param relativeDirection
+	 * @param orientation
+	 * @return
+	 */
+	private WorldSpatial.Direction getDirectionOfASide(RelativeDirection relativeDirection,
+			WorldSpatial.Direction orientation) {
+		switch (relativeDirection) {
+		case FRONT:
+			return orientation;
+		case BACK:
+			return getDirectionAfterTurnRight(getDirectionAfterTurnRight(orientation));
+		case RIGHT:
+			return getDirectionAfterTurnRight(orientation);
+		case LEFT:
+			return getDirectionAfterTurnLeft(orientation);
+		default:
+			return null;
 		}
-		return null;
 	}
 
 	/**
-	 * get view of a certain direction(east, west, south, north)
+	 * get the tile a number of tiles away in a certain direction(east, west,
+	 * south, north)
 	 * 
-	 * @param relativeDirection
+	 * @param direction
+	 * @param distance
 	 * @param currentView
 	 * @return
 	 */
-	private LinkedList<MapTile> getViewOfADirection(WorldSpatial.Direction orientation,
-			HashMap<Coordinate, MapTile> currentView) {
-		Coordinate currentPosition = new Coordinate(getPosition());
-		LinkedList<MapTile> tiles = new LinkedList<MapTile>();
-		switch (orientation) {
+	private MapTile getTileInDirection(WorldSpatial.Direction direction, int distance, ViewWindow currentView) {
+		switch (direction) {
 		case EAST:
-			for (int i = 1; i <= Car.VIEW_SQUARE; i++) {
-				tiles.addLast(currentView.get(new Coordinate(currentPosition.x + i, currentPosition.y)));
-			}
-			break;
+			return currentView.get(distance, 0);
 		case WEST:
-			for (int i = 1; i <= Car.VIEW_SQUARE; i++) {
-				tiles.addLast(currentView.get(new Coordinate(currentPosition.x - i, currentPosition.y)));
-			}
-			break;
+			return currentView.get(-distance, 0);
 		case NORTH:
-			for (int i = 1; i <= Car.VIEW_SQUARE; i++) {
-				tiles.addLast(currentView.get(new Coordinate(currentPosition.x, currentPosition.y + i)));
-			}
-			break;
+			return currentView.get(0, distance);
 		case SOUTH:
-			for (int i = 1; i <= Car.VIEW_SQUARE; i++) {
-				tiles.addLast(currentView.get(new Coordinate(currentPosition.x, currentPosition.y - i)));
-			}
-			break;
+			return currentView.get(0, -distance);
+		default:
+			return null;
 		}
-		return tiles;
 	}
 
-	private int getRoadWidth(WorldSpatial.Direction orientation, HashMap<Coordinate, MapTile> currentView) {
-		int roadWidth = 0;
-		LinkedList<MapTile> tilesLeft = getViewOfASide(RelativeDirection.LEFT, orientation, currentView);
-		LinkedList<MapTile> tilesRight = getViewOfASide(RelativeDirection.RIGHT, orientation, currentView);
-		int i, j;
-		for (i = 0; i < tilesLeft.size(); i++) {
-			MapTile tile = tilesLeft.get(i);
-			if (tile.getName().equals("Wall")) {
-				break;
-			}
-		}
-		for (j = 0; j < tilesRight.size(); j++) {
-			MapTile tile = tilesRight.get(j);
-			if (tile.getName().equals("Wall")) {
-				break;
-			}
-		}
-		roadWidth = i + j - 1;
-		return roadWidth;
+	private int getRoadWidth(WorldSpatial.Direction orientation) {
+		WorldSpatial.Direction left = getDirectionOfASide(RelativeDirection.LEFT, orientation);
+		WorldSpatial.Direction right = getDirectionOfASide(RelativeDirection.RIGHT, orientation);
+		// Only as far as the car can see
+		int i = Math.min(getFreeRun(left), Car.VIEW_SQUARE);
+		int j = Math.min(getFreeRun(right), Car.VIEW_SQUARE);
+		return i + j - 1;
 	}
 
 	public State getState() {
 		return this.state;
 	}
 
-	private boolean shouldBrake(String currentPosition, String bestPosition, float v,
-			WorldSpatial.Direction orientation) {
-		int X_POS = 0;
-		int Y_POS = 1;
+	private boolean shouldBrake(float currentPosition_x_float, float currentPosition_y_float,
+			float bestPosition_x_float, float bestPosition_y_float, float v, WorldSpatial.Direction orientation) {
 		// this is the distance for braking
 		float a = -2F;
 		float t = v / (-a);
 		// s = vt + 1/2 * at^2
 		float distance = v * t + (0.5F) * a * t * t;
-		System.out.println(distance);
-		String[] splitCoordinate = currentPosition.split(",");
-		float currentPosition_x_float = Float.parseFloat((splitCoordinate[X_POS]));
-		float currentPosition_y_float = Float.parseFloat((splitCoordinate[Y_POS]));
-
-		splitCoordinate = bestPosition.split(",");
-		float bestPosition_x_float = Float.parseFloat((splitCoordinate[X_POS]));
-		float bestPosition_y_float = Float.parseFloat((splitCoordinate[Y_POS]));
+		logger.debug("Braking distance {}", box(distance));
 
 		switch (orientation) {
 		case EAST:
@@ -0,0 +1,260 @@
+package planning;
+
+import java.util.Arrays;
+
+import world.DistanceFields;
+import world.TileGrid;
+import world.WorldSpatial;
+
+/**
+ * The cheapest cost from every tile to the nearest exit, and which way to go from each
+ * tile to get there, so that a controller can look up its next move in constant time
+ * instead of planning.
+ *
+ * It is built with one Dijkstra search started from every exit at once, using the same
+ * tile costs as RoutePlanner. Unlike RoutePlanner it does not know which way the car is
+ * facing, so turns cost nothing and it will happily turn on grass.
+ *
+ * Every WorldMap builds one when it is loaded, shared read-only by all the cars on it. To
+ * see what happens when tile costs change, for example when a controller learns to avoid
+ * a tile, copy that field and change the copy: setCost then updates only the tiles whose
+ * cost to the exit depends on the one changed.
+ */
+public class FlowField {
+
+	/** The cost from a tile with no way to an exit, or off the map */
+	public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+	private static final int NO_DIRECTION = -1;
+	private static final WorldSpatial.Direction[] DIRECTIONS = WorldSpatial.Direction.values();
+	// Steps in each WorldSpatial.Direction, by ordinal: EAST, WEST, SOUTH, NORTH
+	private static final int[] DX = {1, -1, 0, 0};
+	private static final int[] DY = {0, 0, -1, 1};
+
+	private final int width;
+	private final int height;
+	private final boolean readOnly;
+	private final boolean[] exit;
+	private final int[] enterCost;
+	// Cost to the nearest exit, and the ordinal of the direction towards it
+	private final int[] cost;
+	private final int[] next;
+
+	// Scratch for updates, made by the first setCost so the shared field never has any
+	private IntHeap open;
+	private int[] affected;
+	private boolean[] isAffected;
+
+	/**
+	 * Builds the read-only field of a map.
+	 */
+	public FlowField(TileGrid grid, DistanceFields distances){
+		this(grid.getWidth(), grid.getHeight(), exits(grid), RoutePlanner.enterCosts(grid, distances), true);
+		IntHeap exits = new IntHeap(width * height);
+		for(int cell = 0; cell < exit.length; cell++){
+			if(exit[cell]){
+				cost[cell] = 0;
+				exits.push(0, cell);
+			}
+		}
+		propagate(exits);
+	}
+
+	private FlowField(int width, int height, boolean[] exit, int[] enterCost, boolean readOnly){
+		this.width = width;
+		this.height = height;
+		this.readOnly = readOnly;
+		this.exit = exit;
+		this.enterCost = enterCost;
+		this.cost = new int[width * height];
+		this.next = new int[width * height];
+		Arrays.fill(cost, UNREACHABLE);
+		Arrays.fill(next, NO_DIRECTION);
+	}
+
+	private static boolean[] exits(TileGrid grid){
+		boolean[] exit = new boolean[grid.getWidth() * grid.getHeight()];
+		for(int y = 0; y < grid.getHeight(); y++){
+			for(int x = 0; x < grid.getWidth(); x++){
+				exit[y * grid.getWidth() + x] = grid.get(x, y).isExit();
+			}
+		}
+		return exit;
+	}
+
+	/**
+	 * A copy of this field whose costs can be changed.
+	 */
+	public FlowField copy(){
+		FlowField copy = new FlowField(width, height, exit, enterCost.clone(), false);
+		System.arraycopy(cost, 0, copy.cost, 0, cost.length);
+		System.arraycopy(next, 0, copy.next, 0, next.length);
+		return copy;
+	}
+
+	/**
+	 * The cost of the cheapest way from (x, y) to an exit, in the units of RoutePlanner,
+	 * 0 on an exit. UNREACHABLE if there is none or (x, y) is not somewhere the car can be.
+	 */
+	public int getCost(int x, int y){
+		if(!contains(x, y) || enterCost[index(x, y)] == RoutePlanner.IMPASSABLE){
+			return UNREACHABLE;
+		}
+		return cost[index(x, y)];
+	}
+
+	/**
+	 * Which way to go from (x, y) to take the cheapest way to an exit, null on an exit or
+	 * where getCost is UNREACHABLE.
+	 */
+	public WorldSpatial.Direction getDirection(int x, int y){
+		if(getCost(x, y) == UNREACHABLE || next[index(x, y)] == NO_DIRECTION){
+			return null;
+		}
+		return DIRECTIONS[next[index(x, y)]];
+	}
+
+	/**
+	 * The cost of driving onto (x, y), RoutePlanner.IMPASSABLE if the car cannot.
+	 */
+	public int getEnterCost(int x, int y){
+		return contains(x, y) ? enterCost[index(x, y)] : RoutePlanner.IMPASSABLE;
+	}
+
+	/**
+	 * Changes the cost of driving onto (x, y) and brings the field up to date, touching
+	 * only the tiles whose way to the exit went through (x, y), or now could.
+	 * @param enterCost the new cost, or RoutePlanner.IMPASSABLE to close the tile
+	 * @throws IllegalStateException on the field of a WorldMap, change a copy instead
+	 */
+	public void setCost(int x, int y, int enterCost){
+		if(readOnly){
+			throw new IllegalStateException("The field of a map is shared, copy it to change it");
+		}
+		if(!contains(x, y)){
+			throw new IllegalArgumentException("(" + x + ", " + y + ") is not on the map");
+		}
+		if(enterCost < 0 && enterCost != RoutePlanner.IMPASSABLE){
+			throw new IllegalArgumentException("Negative cost " + enterCost);
+		}
+		int cell = index(x, y);
+		int old = this.enterCost[cell];
+		if(enterCost == old){
+			return;
+		}
+		this.enterCost[cell] = enterCost;
+		if(open == null){
+			open = new IntHeap(width * height);
+			affected = new int[width * height];
+			isAffected = new boolean[width * height];
+		}
+		open.clear();
+		if(old != RoutePlanner.IMPASSABLE && (enterCost == RoutePlanner.IMPASSABLE || enterCost > old)){
+			// Dearer: whatever went through the tile has to find its way again
+			invalidateThrough(cell);
+		}
+		else if(cost[cell] != UNREACHABLE){
+			// Cheaper: the neighbours may now be better off going through it
+			open.push(cost[cell], cell);
+		}
+		propagate(open);
+	}
+
+	/**
+	 * Forgets the cost of every tile whose way to the exit enters cell, and starts them off
+	 * again from their best neighbour that is not one of them.
+	 */
+	private void invalidateThrough(int cell){
+		int count = 0;
+		for(int d = 0; d < DX.length; d++){
+			int from = neighbour(cell, d);
+			if(from != -1 && next[from] != NO_DIRECTION && neighbour(from, next[from]) == cell){
+				isAffected[from] = true;
+				affected[count++] = from;
+			}
+		}
+		// Everything upstream of those, breadth first
+		for(int i = 0; i < count; i++){
+			int downstream = affected[i];
+			for(int d = 0; d < DX.length; d++){
+				int from = neighbour(downstream, d);
+				if(from != -1 && !isAffected[from] && next[from] != NO_DIRECTION && neighbour(from, next[from]) == downstream){
+					isAffected[from] = true;
+					affected[count++] = from;
+				}
+			}
+		}
+		for(int i = 0; i < count; i++){
+			cost[affected[i]] = UNREACHABLE;
+			next[affected[i]] = NO_DIRECTION;
+		}
+		for(int i = 0; i < count; i++){
+			int from = affected[i];
+			for(int d = 0; d < DX.length; d++){
+				int to = neighbour(from, d);
+				if(to != -1 && !isAffected[to]){
+					relax(from, to, d);
+				}
+			}
+			if(cost[from] != UNREACHABLE){
+				open.push(cost[from], from);
+			}
+		}
+		for(int i = 0; i < count; i++){
+			isAffected[affected[i]] = false;
+		}
+	}
+
+	/**
+	 * Dijkstra from whatever is in the open heap, outwards against the direction of travel.
+	 */
+	private void propagate(IntHeap open){
+		while(!open.isEmpty()){
+			int priority = open.topPriority();
+			int to = open.pop();
+			if(priority != cost[to]){
+				// A stale copy, the tile was reached more cheaply since
+				continue;
+			}
+			for(int d = 0; d < DX.length; d++){
+				int from = neighbour(to, d);
+				if(from != -1 && !exit[from]){
+					// from steps towards to in the opposite direction to d
+					if(relax(from, to, d ^ 1)){
+						open.push(cost[from], from);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Lowers the cost of from if going in direction d to to is cheaper.
+	 */
+	private boolean relax(int from, int to, int d){
+		if(cost[to] == UNREACHABLE || enterCost[to] == RoutePlanner.IMPASSABLE){
+			return false;
+		}
+		int through = cost[to] + enterCost[to];
+		if(through < cost[from]){
+			cost[from] = through;
+			next[from] = d;
+			return true;
+		}
+		return false;
+	}
+
+	private int neighbour(int cell, int d){
+		int x = cell % width + DX[d];
+		int y = cell / width + DY[d];
+		return contains(x, y) ? index(x, y) : -1;
+	}
+
+	private boolean contains(int x, int y){
+		return x >= 0 && y >= 0 && x < width && y < height;
+	}
+
+	private int index(int x, int y){
+		return y * width + x;
+	}
+}
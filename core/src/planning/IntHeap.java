@@ -0,0 +1,86 @@
+package planning;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of int values ordered by int priorities, kept in two parallel arrays
+ * so that pushing and popping never allocate once the heap has grown to size. Values are
+ * not deduplicated: searches push a value again when they find it cheaper, and skip the
+ * stale copy when it is popped.
+ */
+class IntHeap {
+
+	private int[] priorities;
+	private int[] values;
+	private int size = 0;
+
+	IntHeap(int capacity){
+		priorities = new int[Math.max(capacity, 1)];
+		values = new int[priorities.length];
+	}
+
+	void push(int priority, int value){
+		if(size == values.length){
+			priorities = Arrays.copyOf(priorities, size * 2);
+			values = Arrays.copyOf(values, size * 2);
+		}
+		// Sift up
+		int i = size++;
+		while(i > 0){
+			int parent = (i - 1) >>> 1;
+			if(priorities[parent] <= priority){
+				break;
+			}
+			priorities[i] = priorities[parent];
+			values[i] = values[parent];
+			i = parent;
+		}
+		priorities[i] = priority;
+		values[i] = value;
+	}
+
+	/**
+	 * The lowest priority in the heap, that of the value pop will return next.
+	 */
+	int topPriority(){
+		return priorities[0];
+	}
+
+	/**
+	 * Removes and returns the value with the lowest priority.
+	 */
+	int pop(){
+		int top = values[0];
+		size--;
+		int priority = priorities[size];
+		int value = values[size];
+		// Sift the last entry down from the root
+		int i = 0;
+		while(true){
+			int child = 2 * i + 1;
+			if(child >= size){
+				break;
+			}
+			if(child + 1 < size && priorities[child + 1] < priorities[child]){
+				child++;
+			}
+			if(priority <= priorities[child]){
+				break;
+			}
+			priorities[i] = priorities[child];
+			values[i] = values[child];
+			i = child;
+		}
+		priorities[i] = priority;
+		values[i] = value;
+		return top;
+	}
+
+	boolean isEmpty(){
+		return size == 0;
+	}
+
+	void clear(){
+		size = 0;
+	}
+}
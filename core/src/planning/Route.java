@@ -0,0 +1,124 @@
+package planning;
+
+import java.util.Arrays;
+
+import world.WorldSpatial;
+
+/**
+ * A path of adjacent tiles from where the car is to an exit, as found by RoutePlanner.
+ * The same Route is refilled by every plan, and looking up where a tile is on it takes
+ * constant time, so following a route allocates nothing.
+ */
+public class Route {
+
+	/** Returned by indexOf for tiles that are not on the route */
+	public static final int NOT_ON_ROUTE = -1;
+
+	private final int width;
+	private final int height;
+	// Position along the route of every tile of the map, NOT_ON_ROUTE for most
+	private final int[] indexOfCell;
+
+	private int[] xs = new int[16];
+	private int[] ys = new int[16];
+	private int[] nextTurn = new int[16];
+	private int length = 0;
+
+	public Route(int width, int height){
+		this.width = width;
+		this.height = height;
+		this.indexOfCell = new int[width * height];
+		Arrays.fill(indexOfCell, NOT_ON_ROUTE);
+	}
+
+	/**
+	 * Empties the route.
+	 */
+	public void clear(){
+		for(int i = 0; i < length; i++){
+			indexOfCell[ys[i] * width + xs[i]] = NOT_ON_ROUTE;
+		}
+		length = 0;
+	}
+
+	void add(int x, int y){
+		if(length == xs.length){
+			xs = Arrays.copyOf(xs, length * 2);
+			ys = Arrays.copyOf(ys, length * 2);
+			nextTurn = Arrays.copyOf(nextTurn, length * 2);
+		}
+		xs[length] = x;
+		ys[length] = y;
+		indexOfCell[y * width + x] = length;
+		length++;
+	}
+
+	/**
+	 * Called once every tile has been added, works out where the turns are.
+	 */
+	void finish(){
+		int turn = length - 1;
+		for(int i = length - 1; i >= 0; i--){
+			nextTurn[i] = turn;
+			if(i > 0 && i < length - 1 && getDirection(i - 1) != getDirection(i)){
+				turn = i;
+			}
+		}
+	}
+
+	public int getLength(){
+		return length;
+	}
+
+	public boolean isEmpty(){
+		return length == 0;
+	}
+
+	public int getX(int index){
+		return xs[index];
+	}
+
+	public int getY(int index){
+		return ys[index];
+	}
+
+	/**
+	 * Where on the route a tile is, NOT_ON_ROUTE if it is not on it.
+	 */
+	public int indexOf(int x, int y){
+		if(x < 0 || y < 0 || x >= width || y >= height){
+			return NOT_ON_ROUTE;
+		}
+		return indexOfCell[y * width + x];
+	}
+
+	/**
+	 * The direction the route leaves a tile in. The last tile keeps the direction the route
+	 * arrived in, and a route of one tile points EAST.
+	 */
+	public WorldSpatial.Direction getDirection(int index){
+		if(length < 2){
+			return WorldSpatial.Direction.EAST;
+		}
+		if(index >= length - 1){
+			index = length - 2;
+		}
+		int dx = xs[index + 1] - xs[index];
+		int dy = ys[index + 1] - ys[index];
+		if(dx > 0){
+			return WorldSpatial.Direction.EAST;
+		}
+		if(dx < 0){
+			return WorldSpatial.Direction.WEST;
+		}
+		return dy > 0 ? WorldSpatial.Direction.NORTH : WorldSpatial.Direction.SOUTH;
+	}
+
+	/**
+	 * The index of the next tile after index where the route changes direction, or of the
+	 * last tile if it goes straight from here to the end.
+	 */
+	public int getNextTurn(int index){
+		return nextTurn[index];
+	}
+}
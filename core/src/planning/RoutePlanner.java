@@ -0,0 +1,292 @@
+package planning;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import tiles.LavaTrap;
+import tiles.MapTile;
+import tiles.MudTrap;
+import tiles.TileKind;
+import world.DistanceFields;
+import world.TileGrid;
+import world.WorldMap;
+import world.WorldSpatial;
+
+/**
+ * Finds the cheapest route from a tile to the nearest exit with A*.
+ *
+ * The search runs over (tile, heading) pairs rather than tiles alone, so that it can charge
+ * for turning and knows the car cannot steer while on grass. Every tile has a cost of
+ * entering it, in tenths of a tile of plain road:
+ *  - road costs one tile, a little more right next to a wall, where the car is more
+ *    likely to clip it;
+ *  - lava costs the health it takes to cross at cruising speed, health being worth
+ *    HEALTH_COST each. Health is kept in whole points, so every tick on lava takes at
+ *    least one however little damage the lava does;
+ *  - mud costs the speed lost crossing it, and the car cannot accelerate again until
+ *    it is out;
+ *  - grass costs the same as road, but the route never turns on it;
+ *  - walls and empty tiles cannot be entered.
+ * The estimate of what is left is the cost to the nearest exit from the map's FlowField,
+ * which leaves out turns and so never overestimates, so routes are optimal.
+ *
+ * The open set is a binary heap of ints and the closed set is an array stamped with the
+ * number of the search, so planning allocates nothing once the heap has grown.
+ *
+ * What each tile costs is worked out once per map and shared by every planner on it, and
+ * the search arrays, four ints for every tile and heading, belong to the thread rather
+ * than the planner, so a planner for each of hundreds of cars costs next to nothing.
+ * A planner can be used from any thread.
+ */
+public class RoutePlanner {
+
+	/** The cost of crossing a tile of plain road */
+	public static final int ROAD_COST = 10;
+	/** The extra cost of a road tile right next to a wall */
+	public static final int WALL_SIDE_COST = 3;
+	/** The extra cost of a 90 degree turn, which the car has to slow down for */
+	public static final int TURN_COST = 15;
+	/** The cost of losing one point of health */
+	public static final int HEALTH_COST = 3;
+	/** The speed trap costs assume the car crosses them at, in tiles per second */
+	public static final float CRUISE_SPEED = 2.5f;
+	/** The ticks per second the simulation is assumed to run at */
+	public static final int TICKS_PER_SECOND = 60;
+
+	/** The cost of a tile the car cannot drive onto */
+	public static final int IMPASSABLE = -1;
+	private static final int DIRECTIONS = 4;
+	// Steps in each WorldSpatial.Direction, by ordinal: EAST, WEST, SOUTH, NORTH
+	private static final int[] DX = {1, -1, 0, 0};
+	private static final int[] DY = {0, 0, -1, 1};
+	private static final int[] REVERSE = {1, 0, 3, 2};
+
+	// Costs of the maps planners have been made for, dropped with the map
+	private static final Map<WorldMap,Costs> mapCosts = new WeakHashMap<WorldMap,Costs>();
+
+	private static final ThreadLocal<Search> searches = new ThreadLocal<Search>(){
+		@Override
+		protected Search initialValue(){
+			return new Search(0);
+		}
+	};
+
+	private final int width;
+	private final int height;
+	private final FlowField flowField;
+	private final int[] enterCost;
+	private final boolean[] noSteering;
+	private final boolean[] exit;
+
+	public RoutePlanner(WorldMap map){
+		TileGrid grid = map.getTileGrid();
+		this.width = grid.getWidth();
+		this.height = grid.getHeight();
+		this.flowField = map.getFlowField();
+
+		Costs costs = costs(map);
+		enterCost = costs.enterCost;
+		noSteering = costs.noSteering;
+		exit = costs.exit;
+	}
+
+	/**
+	 * What driving over each tile of a map costs, read-only once made.
+	 */
+	private static final class Costs {
+
+		final int[] enterCost;
+		final boolean[] noSteering;
+		final boolean[] exit;
+
+		Costs(WorldMap map){
+			TileGrid grid = map.getTileGrid();
+			int width = grid.getWidth();
+			int cells = width * grid.getHeight();
+			enterCost = enterCosts(grid, map.getDistanceFields());
+			noSteering = new boolean[cells];
+			exit = new boolean[cells];
+			for(int y = 0; y < grid.getHeight(); y++){
+				for(int x = 0; x < width; x++){
+					MapTile tile = grid.get(x, y);
+					noSteering[y * width + x] = tile.getKind() == TileKind.GRASS;
+					exit[y * width + x] = tile.isExit();
+				}
+			}
+		}
+	}
+
+	private static Costs costs(WorldMap map){
+		synchronized(mapCosts){
+			Costs costs = mapCosts.get(map);
+			if(costs == null){
+				costs = new Costs(map);
+				mapCosts.put(map, costs);
+			}
+			return costs;
+		}
+	}
+
+	/**
+	 * A thread's search state, indexed by tile * DIRECTIONS + heading, big enough for the
+	 * largest map planned on so far. Searches are numbered on from one map to the next,
+	 * so stamps left by a search on another map are never mistaken for this one's.
+	 */
+	private static final class Search {
+
+		final int[] cost;
+		final int[] parent;
+		final int[] seen;
+		final int[] closed;
+		final int[] path;
+		final IntHeap open;
+		int number = 0;
+
+		Search(int states){
+			cost = new int[states];
+			parent = new int[states];
+			seen = new int[states];
+			closed = new int[states];
+			path = new int[states];
+			open = new IntHeap(states / DIRECTIONS);
+		}
+	}
+
+	/**
+	 * The cost of driving onto every tile of a grid, by y * width + x, including the extra
+	 * for tiles next to walls.
+	 */
+	static int[] enterCosts(TileGrid grid, DistanceFields distances){
+		int width = grid.getWidth();
+		int[] costs = new int[width * grid.getHeight()];
+		for(int y = 0; y < grid.getHeight(); y++){
+			for(int x = 0; x < width; x++){
+				int cost = enterCost(grid.get(x, y));
+				if(cost != IMPASSABLE && distances.getWallDistance(x, y) == 1){
+					cost += WALL_SIDE_COST;
+				}
+				costs[y * width + x] = cost;
+			}
+		}
+		return costs;
+	}
+
+	/**
+	 * The cost of driving onto a tile, IMPASSABLE if the car cannot.
+	 */
+	static int enterCost(MapTile tile){
+		if(tile.isBlocked()){
+			return IMPASSABLE;
+		}
+		if(tile instanceof LavaTrap){
+			int ticks = (int) Math.ceil(TICKS_PER_SECOND / CRUISE_SPEED);
+			int damagePerTick = (int) Math.ceil(((LavaTrap) tile).getDamagePerSecond() / TICKS_PER_SECOND);
+			return ROAD_COST + ticks * damagePerTick * HEALTH_COST;
+		}
+		if(tile instanceof MudTrap){
+			// The fraction of its speed the car loses on the way through, as extra tiles
+			// of road it takes to get that speed back
+			float speedLost = 1 - (float) Math.exp(-((MudTrap) tile).getSlowdownFactor() / CRUISE_SPEED);
+			return ROAD_COST + Math.round(ROAD_COST * speedLost * CRUISE_SPEED);
+		}
+		return ROAD_COST;
+	}
+
+	/**
+	 * Plans a route from (x, y) to the nearest exit for a car currently facing heading.
+	 * Setting off in any other direction is charged as turning on the spot.
+	 * @param route is cleared and filled with the route, starting with (x, y)
+	 * @return false, leaving route empty, if no exit can be reached
+	 */
+	public boolean plan(int x, int y, WorldSpatial.Direction heading, Route route){
+		route.clear();
+		if(x < 0 || y < 0 || x >= width || y >= height){
+			return false;
+		}
+		Search scratch = searches.get();
+		if(scratch.cost.length < width * height * DIRECTIONS){
+			scratch = new Search(width * height * DIRECTIONS);
+			searches.set(scratch);
+		}
+		int[] cost = scratch.cost;
+		int[] parent = scratch.parent;
+		int[] seen = scratch.seen;
+		int[] closed = scratch.closed;
+		IntHeap open = scratch.open;
+		int search = ++scratch.number;
+		open.clear();
+
+		int start = y * width + x;
+		for(int d = 0; d < DIRECTIONS; d++){
+			int state = start * DIRECTIONS + d;
+			int turns = d == heading.ordinal() ? 0 : d == REVERSE[heading.ordinal()] ? 2 : 1;
+			cost[state] = turns * TURN_COST;
+			parent[state] = -1;
+			seen[state] = search;
+			open.push(cost[state] + estimate(x, y), state);
+		}
+
+		while(!open.isEmpty()){
+			int state = open.pop();
+			if(closed[state] == search){
+				// A stale copy, this state was already expanded more cheaply
+				continue;
+			}
+			closed[state] = search;
+
+			int cell = state / DIRECTIONS;
+			int facing = state % DIRECTIONS;
+			if(exit[cell]){
+				buildRoute(state, parent, scratch.path, route);
+				return true;
+			}
+
+			int cx = cell % width;
+			int cy = cell / width;
+			for(int d = 0; d < DIRECTIONS; d++){
+				boolean turning = d != facing;
+				if(d == REVERSE[facing] || (turning && noSteering[cell])){
+					continue;
+				}
+				int nx = cx + DX[d];
+				int ny = cy + DY[d];
+				if(nx < 0 || ny < 0 || nx >= width || ny >= height){
+					continue;
+				}
+				int next = ny * width + nx;
+				if(enterCost[next] == IMPASSABLE){
+					continue;
+				}
+				int nextState = next * DIRECTIONS + d;
+				if(closed[nextState] == search){
+					continue;
+				}
+				int nextCost = cost[state] + enterCost[next] + (turning ? TURN_COST : 0);
+				if(seen[nextState] != search || nextCost < cost[nextState]){
+					seen[nextState] = search;
+					cost[nextState] = nextCost;
+					parent[nextState] = state;
+					open.push(nextCost + estimate(nx, ny), nextState);
+				}
+			}
+		}
+		return false;
+	}
+
+	private int estimate(int x, int y){
+		int remaining = flowField.getCost(x, y);
+		return remaining == FlowField.UNREACHABLE ? 0 : remaining;
+	}
+
+	private void buildRoute(int state, int[] parent, int[] path, Route route){
+		// The chain of parents runs from the exit back to the start
+		int tiles = 0;
+		for(int s = state; s != -1; s = parent[s]){
+			path[tiles++] = s / DIRECTIONS;
+		}
+		for(int i = tiles - 1; i >= 0; i--){
+			route.add(path[i] % width, path[i] / width);
+		}
+		route.finish();
+	}
+}
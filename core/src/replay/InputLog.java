@@ -0,0 +1,85 @@
+package replay;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * A recording made by InputRecorder, read fully into memory.
+ *
+ */
+public class InputLog {
+
+	private final String mapName;
+	private final String controllerName;
+	private final float delta;
+	private final byte[] data;
+	private final int firstOp;
+	private final long ticks;
+	private final long stateHash;
+
+	public InputLog(byte[] data) throws IOException {
+		this.data = data;
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+		if(in.readInt() != InputRecorder.MAGIC){
+			throw new IOException("Not an input recording");
+		}
+		int version = in.readUnsignedShort();
+		if(version != InputRecorder.VERSION){
+			throw new IOException("Unsupported input recording version " + version);
+		}
+		mapName = in.readUTF();
+		controllerName = in.readUTF();
+		delta = in.readFloat();
+		firstOp = data.length - in.available();
+
+		// The trailer is fixed size: END_LOG, the tick count and the state hash
+		int trailer = data.length - (1 + 2 * 8);
+		if(trailer < firstOp || data[trailer] != InputRecorder.END_LOG){
+			throw new IOException("Input recording is truncated");
+		}
+		in = new DataInputStream(new ByteArrayInputStream(data, trailer + 1, 2 * 8));
+		ticks = in.readLong();
+		stateHash = in.readLong();
+	}
+
+	public static InputLog load(String path) throws IOException {
+		return new InputLog(Files.readAllBytes(Paths.get(path)));
+	}
+
+	public String getMapName(){
+		return mapName;
+	}
+
+	public String getControllerName(){
+		return controllerName;
+	}
+
+	/**
+	 * The fixed delta every tick was stepped with.
+	 */
+	public float getDelta(){
+		return delta;
+	}
+
+	public long getTicks(){
+		return ticks;
+	}
+
+	/**
+	 * The hash of the car's state at the end of the recorded run.
+	 */
+	public long getStateHash(){
+		return stateHash;
+	}
+
+	byte[] getData(){
+		return data;
+	}
+
+	int getFirstOp(){
+		return firstOp;
+	}
+}
@@ -0,0 +1,133 @@
+package replay;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Records every control call made on a Car, tick by tick, into the compact binary format
+ * read by InputLog. Attach it with Car.setInputRecorder before the first tick, and call
+ * finish once the run is over.
+ *
+ * Each call is one opcode byte, turns are followed by the float delta they were given,
+ * and every tick is closed by END_TICK. The log ends with END_LOG, the number of ticks
+ * and a hash of the car's final state so a replay can be checked for determinism.
+ *
+ */
+public class InputRecorder {
+
+	static final int MAGIC = 0x464C5250; // "FLRP"
+	static final int VERSION = 1;
+
+	static final byte END_TICK = 0;
+	static final byte FORWARD = 1;
+	static final byte REVERSE = 2;
+	static final byte BRAKE = 3;
+	static final byte TURN_LEFT = 4;
+	static final byte TURN_RIGHT = 5;
+	static final byte END_LOG = 0x7F;
+
+	private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+	private final DataOutputStream out = new DataOutputStream(bytes);
+	private long ticks = 0;
+	private boolean finished = false;
+
+	/**
+	 * @param mapName the map the run is on, kept in the log for reference
+	 * @param controllerName the controller being recorded, kept in the log for reference
+	 * @param delta the fixed delta every tick is stepped with
+	 */
+	public InputRecorder(String mapName, String controllerName, float delta){
+		try {
+			out.writeInt(MAGIC);
+			out.writeShort(VERSION);
+			out.writeUTF(mapName);
+			out.writeUTF(controllerName);
+			out.writeFloat(delta);
+		} catch (IOException e) {
+			// Writing to memory cannot fail
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public void forward(){
+		write(FORWARD);
+	}
+
+	public void reverse(){
+		write(REVERSE);
+	}
+
+	public void brake(){
+		write(BRAKE);
+	}
+
+	public void turnLeft(float delta){
+		write(TURN_LEFT);
+		writeFloat(delta);
+	}
+
+	public void turnRight(float delta){
+		write(TURN_RIGHT);
+		writeFloat(delta);
+	}
+
+	/**
+	 * Closes the calls of the current tick, called by the Car as it updates.
+	 */
+	public void endTick(){
+		write(END_TICK);
+		ticks++;
+	}
+
+	/**
+	 * Ends the log with the final state of the car, see Car.stateHash().
+	 */
+	public void finish(long stateHash){
+		write(END_LOG);
+		try {
+			out.writeLong(ticks);
+			out.writeLong(stateHash);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		finished = true;
+	}
+
+	public long getTicks(){
+		return ticks;
+	}
+
+	public void writeTo(OutputStream stream) throws IOException {
+		if(!finished){
+			throw new IllegalStateException("The recording has not been finished");
+		}
+		bytes.writeTo(stream);
+	}
+
+	public void save(String path) throws IOException {
+		OutputStream stream = new FileOutputStream(path);
+		try {
+			writeTo(stream);
+		} finally {
+			stream.close();
+		}
+	}
+
+	private void write(byte op){
+		if(finished){
+			throw new IllegalStateException("The recording has already been finished");
+		}
+		bytes.write(op);
+	}
+
+	private void writeFloat(float value){
+		try {
+			out.writeFloat(value);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package replay;
+
+import controller.CarController;
+import world.Car;
+
+/**
+ * Drives a car with the calls from an InputLog instead of making any decisions, so a
+ * recorded run can be re-simulated without the controller that produced it. Each update
+ * replays exactly one recorded tick.
+ *
+ */
+public class ReplayController extends CarController {
+
+	private final byte[] data;
+	private int position;
+
+	public ReplayController(Car car, InputLog log){
+		super(car);
+		this.data = log.getData();
+		this.position = log.getFirstOp();
+	}
+
+	@Override
+	public void update(float delta) {
+		while(true){
+			byte op = data[position++];
+			switch(op){
+			case InputRecorder.END_TICK:
+				return;
+			case InputRecorder.FORWARD:
+				applyForwardAcceleration();
+				break;
+			case InputRecorder.REVERSE:
+				applyReverseAcceleration();
+				break;
+			case InputRecorder.BRAKE:
+				applyBrake();
+				break;
+			case InputRecorder.TURN_LEFT:
+				turnLeft(readFloat());
+				break;
+			case InputRecorder.TURN_RIGHT:
+				turnRight(readFloat());
+				break;
+			case InputRecorder.END_LOG:
+				// Past the end of the recording, leave the car alone
+				position--;
+				return;
+			default:
+				throw new IllegalStateException("Corrupt input recording, unknown op " + op);
+			}
+		}
+	}
+
+	private float readFloat(){
+		int bits = ((data[position] & 0xFF) << 24) | ((data[position + 1] & 0xFF) << 16)
+				| ((data[position + 2] & 0xFF) << 8) | (data[position + 3] & 0xFF);
+		position += 4;
+		return Float.intBitsToFloat(bits);
+	}
+}
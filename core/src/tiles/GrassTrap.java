@@ -3,6 +3,27 @@ package tiles;
 import world.Car;
 
 public class GrassTrap extends TrapTile {
+	
+	public static final TrapType TYPE = new TrapType() {
+		@Override
+		public String getName() {
+			return "GrassTrap";
+		}
+
+		@Override
+		public TrapTile create(TrapParameters parameters) {
+			return new GrassTrap(parameters);
+		}
+	};
+
+	public GrassTrap() {
+		this(TrapParameters.NONE);
+	}
+
+	public GrassTrap(TrapParameters parameters) {
+		super(TileKind.GRASS, parameters);
+	}
+
 	public void applyTo(Car car, float delta) {
 		// car.setVelocity(1f, 1f);
 	}
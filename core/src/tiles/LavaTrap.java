@@ -4,8 +4,42 @@ import world.Car;
 
 public class LavaTrap extends TrapTile {
 	
+	public static final TrapType TYPE = new TrapType() {
+		@Override
+		public String getName() {
+			return "LavaTrap";
+		}
+
+		@Override
+		public TrapTile create(TrapParameters parameters) {
+			return new LavaTrap(parameters);
+		}
+	};
+
+	/** The tile property setting the damage done, 20 a second if it is not set */
+	public static final String DAMAGE_PER_SECOND_PARAMETER = "damagePerSecond";
+	private static final float DAMAGE_PER_SECOND = 20;
+	
+	private final float damagePerSecond;
+	
+	public LavaTrap() {
+		this(TrapParameters.NONE);
+	}
+
+	public LavaTrap(TrapParameters parameters) {
+		super(TileKind.LAVA, parameters);
+		damagePerSecond = parameters.getFloat(DAMAGE_PER_SECOND_PARAMETER, DAMAGE_PER_SECOND);
+	}
+
 	public void applyTo(Car car, float delta) {
-		car.reduceHealth(20 * delta);
+		car.reduceHealth(damagePerSecond * delta);
+	}
+	
+	/**
+	 * Health lost for every second spent on the lava
+	 */
+	public float getDamagePerSecond() {
+		return damagePerSecond;
 	}
 
 }
@@ -5,19 +5,62 @@ package tiles;
 /**
  * Represents a single MapTile
  * 
+ * Tiles are immutable, so the shared instances below (and one instance per trap type)
+ * are used for every cell of the map rather than one object per cell.
  *
  */
 public class MapTile {
 	
 	public static final String tileNameSpace = "tiles.";
 
+	public static final MapTile EMPTY = new MapTile("Empty", TileKind.EMPTY);
+	public static final MapTile ROAD = new MapTile("Road", TileKind.ROAD);
+	public static final MapTile WALL = new MapTile("Wall", TileKind.WALL);
+
 	protected String name;
+	protected final TileKind kind;
 	
 	public MapTile(String layerName) {
+		this(layerName, TileKind.fromName(layerName));
+	}
+
+	protected MapTile(String layerName, TileKind kind) {
 		this.name = layerName;
+		this.kind = kind;
 	}
 
 	public String getName() {
 		return name;
 	}
+
+	public TileKind getKind() {
+		return kind;
+	}
+
+	/**
+	 * Walls and the empty space outside the map, the car cannot drive onto these
+	 */
+	public boolean isBlocked() {
+		return kind.isBlocked();
+	}
+
+	public boolean isWall() {
+		return kind == TileKind.WALL;
+	}
+
+	public boolean isEmpty() {
+		return kind == TileKind.EMPTY;
+	}
+
+	public boolean isTrap() {
+		return kind.isTrap();
+	}
+
+	public boolean isUtility() {
+		return kind.isUtility();
+	}
+
+	public boolean isExit() {
+		return kind == TileKind.EXIT;
+	}
 }
@@ -6,12 +6,44 @@ import world.Car;
 
 public class MudTrap extends TrapTile {
 	
-	private float SLOWDOWN_FACTOR = 0.6f;
+	public static final TrapType TYPE = new TrapType() {
+		@Override
+		public String getName() {
+			return "MudTrap";
+		}
+
+		@Override
+		public TrapTile create(TrapParameters parameters) {
+			return new MudTrap(parameters);
+		}
+	};
+
+	/** The tile property setting how much the mud slows the car, 0.6 if it is not set */
+	public static final String SLOWDOWN_FACTOR_PARAMETER = "slowdownFactor";
+	private static final float SLOWDOWN_FACTOR = 0.6f;
+
+	private final float slowdownFactor;
+
+	public MudTrap() {
+		this(TrapParameters.NONE);
+	}
+
+	public MudTrap(TrapParameters parameters) {
+		super(TileKind.MUD, parameters);
+		slowdownFactor = parameters.getFloat(SLOWDOWN_FACTOR_PARAMETER, SLOWDOWN_FACTOR);
+	}
+
 	public void applyTo(Car car, float delta) {
 		Vector2 currentSpeed = car.getRawVelocity();
-		float xReduction = currentSpeed.x*SLOWDOWN_FACTOR*delta;
-		float yReduction = currentSpeed.y*SLOWDOWN_FACTOR*delta;
+		float xReduction = currentSpeed.x*slowdownFactor*delta;
+		float yReduction = currentSpeed.y*slowdownFactor*delta;
 		car.setVelocity(currentSpeed.x-xReduction,currentSpeed.y-yReduction);
 	}
 
+	/**
+	 * The fraction of its speed the car loses for every second spent in the mud
+	 */
+	public float getSlowdownFactor() {
+		return slowdownFactor;
+	}
 }
@@ -0,0 +1,68 @@
+package tiles;
+
+/**
+ * What a MapTile is, so the simulation can classify a tile with a field read instead of
+ * comparing layer names. Each kind carries a small set of flags describing how the car
+ * interacts with it.
+ *
+ */
+public enum TileKind {
+	EMPTY(TileKind.FLAG_BLOCKED),
+	ROAD(0),
+	WALL(TileKind.FLAG_BLOCKED),
+	START(TileKind.FLAG_UTILITY),
+	EXIT(TileKind.FLAG_UTILITY),
+	LAVA(TileKind.FLAG_TRAP),
+	MUD(TileKind.FLAG_TRAP),
+	GRASS(TileKind.FLAG_TRAP),
+	/** Any other TrapTile subclass */
+	TRAP(TileKind.FLAG_TRAP);
+
+	/** The car cannot drive onto the tile */
+	public static final int FLAG_BLOCKED = 1;
+	/** The tile is a TrapTile and affects the car standing on it */
+	public static final int FLAG_TRAP = 1 << 1;
+	/** The tile is a UtilityTile */
+	public static final int FLAG_UTILITY = 1 << 2;
+
+	private final int flags;
+
+	private TileKind(int flags){
+		this.flags = flags;
+	}
+
+	public int getFlags(){
+		return flags;
+	}
+
+	public boolean isBlocked(){
+		return (flags & FLAG_BLOCKED) != 0;
+	}
+
+	public boolean isTrap(){
+		return (flags & FLAG_TRAP) != 0;
+	}
+
+	public boolean isUtility(){
+		return (flags & FLAG_UTILITY) != 0;
+	}
+
+	/**
+	 * The kind of a plain MapTile created from its layer name.
+	 */
+	public static TileKind fromName(String name){
+		if(name.equals("Empty")){
+			return EMPTY;
+		}
+		if(name.equals("Wall")){
+			return WALL;
+		}
+		if(name.equals("Trap")){
+			return TRAP;
+		}
+		if(name.equals("Utility")){
+			return START;
+		}
+		return ROAD;
+	}
+}
@@ -0,0 +1,86 @@
+package tiles;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The settings of a kind of trap, such as how much damage lava does, as set on its tile
+ * in the map's tileset. Each one is a name and a value kept as text; traps read the ones
+ * they know and use their own defaults for the rest.
+ *
+ * Parameters are immutable and compare equal when they hold the same settings, so that
+ * TrapRegistry can hand out one tile for every cell with the same trap and settings.
+ */
+public final class TrapParameters {
+
+	public static final TrapParameters NONE = new TrapParameters(new TreeMap<String,String>());
+
+	// Sorted, so that equal parameters list and store the same
+	private final Map<String,String> values;
+
+	private TrapParameters(TreeMap<String,String> values){
+		this.values = Collections.unmodifiableMap(values);
+	}
+
+	/**
+	 * Parameters holding a copy of values, whatever their types, as text.
+	 */
+	public static TrapParameters of(Map<String,?> values){
+		if(values.isEmpty()){
+			return NONE;
+		}
+		TreeMap<String,String> copy = new TreeMap<String,String>();
+		for(Map.Entry<String,?> entry : values.entrySet()){
+			copy.put(entry.getKey(), String.valueOf(entry.getValue()));
+		}
+		return new TrapParameters(copy);
+	}
+
+	/**
+	 * Every setting, by name, in name order.
+	 */
+	public Map<String,String> asMap(){
+		return values;
+	}
+
+	public String getString(String name, String defaultValue){
+		String value = values.get(name);
+		return value != null ? value : defaultValue;
+	}
+
+	/**
+	 * The setting called name as a number, defaultValue if there is none.
+	 * @throws IllegalArgumentException if it is set to something that is not a number
+	 */
+	public float getFloat(String name, float defaultValue){
+		String value = values.get(name);
+		if(value == null){
+			return defaultValue;
+		}
+		try {
+			return Float.parseFloat(value.trim());
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Trap parameter " + name + " is not a number: " + value);
+		}
+	}
+
+	public boolean isEmpty(){
+		return values.isEmpty();
+	}
+
+	@Override
+	public boolean equals(Object other){
+		return other instanceof TrapParameters && values.equals(((TrapParameters) other).values);
+	}
+
+	@Override
+	public int hashCode(){
+		return values.hashCode();
+	}
+
+	@Override
+	public String toString(){
+		return values.toString();
+	}
+}
@@ -0,0 +1,138 @@
+package tiles;
+
+import java.lang.reflect.Constructor;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import exceptions.UnknownTrapException;
+
+/**
+ * Finds the TrapType for each trap named in a map and hands out the tiles it makes.
+ *
+ * Types are looked up once each: the built-in ones and any listed for ServiceLoader are
+ * registered the first time the registry is used, and a name that is neither is taken
+ * to be a TrapTile subclass in the tiles package, as maps have always named them. Tiles
+ * are made once for each trap and settings and shared from then on, by every map.
+ */
+public class TrapRegistry {
+
+	private static Logger logger = LogManager.getLogger();
+
+	private static final ConcurrentHashMap<String,TrapType> types = new ConcurrentHashMap<String,TrapType>();
+	private static final ConcurrentHashMap<String,ConcurrentHashMap<TrapParameters,TrapTile>> tiles =
+			new ConcurrentHashMap<String,ConcurrentHashMap<TrapParameters,TrapTile>>();
+
+	static {
+		register(LavaTrap.TYPE);
+		register(MudTrap.TYPE);
+		register(GrassTrap.TYPE);
+		try {
+			for(TrapType type : ServiceLoader.load(TrapType.class)){
+				register(type);
+			}
+		} catch (ServiceConfigurationError e) {
+			logger.error("Could not load trap types", e);
+		}
+	}
+
+	private TrapRegistry(){
+	}
+
+	/**
+	 * Makes a kind of trap available to maps, replacing any type with the same name.
+	 * Tiles already handed out for that name are kept by the maps using them.
+	 */
+	public static void register(TrapType type){
+		types.put(type.getName(), type);
+		tiles.remove(type.getName());
+	}
+
+	/**
+	 * The type registered under name.
+	 * @throws UnknownTrapException if there is none and no TrapTile class of that name
+	 */
+	public static TrapType getType(String name){
+		TrapType type = types.get(name);
+		if(type == null){
+			type = reflectiveType(name);
+			TrapType raced = types.putIfAbsent(name, type);
+			if(raced != null){
+				type = raced;
+			}
+		}
+		return type;
+	}
+
+	/**
+	 * The shared tile for the trap called type with the given settings.
+	 * @throws UnknownTrapException if there is no such trap
+	 */
+	public static TrapTile get(String type, TrapParameters parameters){
+		ConcurrentHashMap<TrapParameters,TrapTile> made = tiles.get(type);
+		if(made == null){
+			getType(type);
+			made = new ConcurrentHashMap<TrapParameters,TrapTile>();
+			ConcurrentHashMap<TrapParameters,TrapTile> raced = tiles.putIfAbsent(type, made);
+			if(raced != null){
+				made = raced;
+			}
+		}
+		TrapTile tile = made.get(parameters);
+		if(tile == null){
+			TrapType trapType = getType(type);
+			tile = trapType.create(parameters);
+			tile.setType(trapType.getName());
+			TrapTile raced = made.putIfAbsent(parameters, tile);
+			if(raced != null){
+				tile = raced;
+			}
+		}
+		return tile;
+	}
+
+	/**
+	 * A type for a TrapTile subclass in the tiles package, made with its TrapParameters
+	 * constructor if it has one or its no-argument one if not.
+	 */
+	private static TrapType reflectiveType(final String name){
+		final Constructor<? extends TrapTile> withParameters;
+		final Constructor<? extends TrapTile> withoutParameters;
+		try {
+			Class<? extends TrapTile> tileClass = Class.forName(MapTile.tileNameSpace + name).asSubclass(TrapTile.class);
+			withParameters = constructor(tileClass, TrapParameters.class);
+			withoutParameters = withParameters == null ? constructor(tileClass) : null;
+			if(withParameters == null && withoutParameters == null){
+				throw new NoSuchMethodException(tileClass.getName() + " has no constructor to make it with");
+			}
+		} catch (ClassNotFoundException | ClassCastException | NoSuchMethodException e) {
+			throw new UnknownTrapException(name, e);
+		}
+		return new TrapType(){
+			@Override
+			public String getName(){
+				return name;
+			}
+
+			@Override
+			public TrapTile create(TrapParameters parameters){
+				try {
+					return withParameters != null ? withParameters.newInstance(parameters) : withoutParameters.newInstance();
+				} catch (ReflectiveOperationException e) {
+					throw new UnknownTrapException(name, e);
+				}
+			}
+		};
+	}
+
+	private static Constructor<? extends TrapTile> constructor(Class<? extends TrapTile> tileClass, Class<?>... parameterTypes){
+		try {
+			return tileClass.getConstructor(parameterTypes);
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+}
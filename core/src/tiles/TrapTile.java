@@ -6,8 +6,46 @@ public abstract class TrapTile extends MapTile{
 
 private static final String layerName = "Trap";
 
+	private final TrapParameters parameters;
+	// The name of the TrapType that made this tile, set by TrapRegistry
+	private String type = null;
+
 	public TrapTile() {
-		super(layerName);
+		this(TileKind.TRAP);
+	}
+
+	protected TrapTile(TileKind kind) {
+		this(kind, TrapParameters.NONE);
+	}
+
+	protected TrapTile(TileKind kind, TrapParameters parameters) {
+		super(layerName, kind);
+		this.parameters = parameters;
 	}
 	public abstract void applyTo(Car car, float delta);
+
+	/**
+	 * The name of the TrapType this tile was made by, as maps give it. The simple class
+	 * name for a tile made some other way than through TrapRegistry.
+	 */
+	public String getType() {
+		return type != null ? type : getClass().getSimpleName();
+	}
+
+	/**
+	 * Records the name of the type that made this tile, before it is handed out. A tile
+	 * a type hands out under more than one name keeps the first.
+	 */
+	void setType(String type) {
+		if(this.type == null){
+			this.type = type;
+		}
+	}
+
+	/**
+	 * The settings this tile was made with
+	 */
+	public TrapParameters getParameters() {
+		return parameters;
+	}
 }
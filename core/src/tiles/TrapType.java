@@ -0,0 +1,22 @@
+package tiles;
+
+/**
+ * Makes the tiles of one kind of trap. The built-in traps are registered by TrapRegistry
+ * itself; others can be added without changing the simulation by listing a class that
+ * implements this, with a public no-argument constructor, in
+ * META-INF/services/tiles.TrapType on the class path.
+ */
+public interface TrapType {
+
+	/**
+	 * The name the trap goes by in the "type" property of its tiles in a map, which is
+	 * also what getType returns on the tiles it makes.
+	 */
+	String getName();
+
+	/**
+	 * A new tile of this trap with the given settings. Tiles are shared between every cell
+	 * of a map with the same trap and settings, so they must not change after this.
+	 */
+	TrapTile create(TrapParameters parameters);
+}
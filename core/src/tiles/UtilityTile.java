@@ -10,9 +10,12 @@ public class UtilityTile extends MapTile{
 	
 	public enum Type {START, EXIT}
 	private final Type type;
+
+	public static final UtilityTile START = new UtilityTile("Utility", Type.START);
+	public static final UtilityTile EXIT = new UtilityTile("Utility", Type.EXIT);
 	
 	public UtilityTile(String layerName, Type type) {
-		super(layerName);
+		super(layerName, type == Type.EXIT ? TileKind.EXIT : TileKind.START);
 		this.type = type;
 	}
 	
@@ -1,10 +1,15 @@
 package utilities;
 
-import java.util.Objects;
-
+/**
+ * An immutable tile coordinate. The hash is computed once on construction, and pack()
+ * gives a packed long form, so a tile can be remembered and compared without
+ * allocating a Coordinate at all.
+ */
 public class Coordinate {
-	public int x;
-	public int y;
+	public final int x;
+	public final int y;
+	
+	private final int hash;
 	
 	private static final int X_POS = 0;
 	private static final int Y_POS = 1;
@@ -12,30 +17,51 @@ public class Coordinate {
 	/**
 	 * Constructs a coordinate object
 	 * @param coordinate: "1,0" is an example of a coordinate string that will
-	 * be deconstructed into a coordinate object.
+	 * be deconstructed into a coordinate object. Fractional positions such as
+	 * "1.4,0.6" (what Car.getPosition() returns) are rounded to the nearest tile.
 	 */
 	public Coordinate(String coordinate){
 		// Split up coordinate
+		int parsedX = 0;
+		int parsedY = 0;
 		try{
 			String[] splitCoordinate = coordinate.split(",");
-			this.x = Integer.parseInt(splitCoordinate[X_POS]);
-			this.y = Integer.parseInt(splitCoordinate[Y_POS]);
+			parsedX = Math.round(Float.parseFloat(splitCoordinate[X_POS]));
+			parsedY = Math.round(Float.parseFloat(splitCoordinate[Y_POS]));
 		}
 		catch(Exception e){
 			e.printStackTrace();
 		}
-		
+		this.x = parsedX;
+		this.y = parsedY;
+		this.hash = hash(parsedX, parsedY);
 	}
 	
 	public Coordinate(int x, int y){
 		this.x = x;
 		this.y = y;
+		this.hash = hash(x, y);
 	}
 	
 	public String toString(){
 		return x+","+y;
 	}
 	
+	/**
+	 * Packs a coordinate into a long, x in the high 32 bits and y in the low 32 bits.
+	 */
+	public static long pack(int x, int y){
+		return ((long) x << 32) | (y & 0xFFFFFFFFL);
+	}
+	
+	public static int unpackX(long packed){
+		return (int) (packed >> 32);
+	}
+	
+	public static int unpackY(long packed){
+		return (int) packed;
+	}
+	
 	
 	/**
 	 * Defined in order to use it as keys in a hashmap
@@ -54,6 +80,11 @@ public class Coordinate {
 	}
 	
 	public int hashCode(){
-		return Objects.hash(x,y);
+		return hash;
+	}
+	
+	// Same value Objects.hash(x, y) gives, without the varargs array and boxing
+	private static int hash(int x, int y){
+		return 31 * (31 + x) + y;
 	}
 }
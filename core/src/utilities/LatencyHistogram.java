@@ -0,0 +1,110 @@
+package utilities;
+
+import java.util.Arrays;
+
+/**
+ * Counts how long something took, in nanoseconds, in a fixed number of buckets so that
+ * recording costs a few instructions and never allocates, however many values there are.
+ *
+ * Values under SUB_BUCKETS get a bucket each. Above that every power of two is split into
+ * SUB_BUCKETS equal buckets, so a percentile is never off by more than 1 / SUB_BUCKETS
+ * (about 3%) of its value. Values past MAX_EXPONENT, over nine minutes, all share the last
+ * bucket; the largest value is also kept exactly. Not thread safe: give each thread its
+ * own and add them together afterwards.
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	private static final int MAX_EXPONENT = 39;
+	private static final int BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BITS + 1) * SUB_BUCKETS;
+
+	private final long[] counts = new long[BUCKETS];
+	private long count = 0;
+	private long max = 0;
+
+	/**
+	 * Counts one value, negative ones as 0.
+	 */
+	public void record(long nanos){
+		if(nanos < 0){
+			nanos = 0;
+		}
+		counts[bucket(nanos)]++;
+		count++;
+		if(nanos > max){
+			max = nanos;
+		}
+	}
+
+	private static int bucket(long value){
+		if(value < SUB_BUCKETS){
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		if(exponent > MAX_EXPONENT){
+			return BUCKETS - 1;
+		}
+		// The top SUB_BITS + 1 bits, the first of which is always set
+		int shift = exponent - SUB_BITS;
+		return SUB_BUCKETS + shift * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+	}
+
+	/**
+	 * The largest value that falls in a bucket.
+	 */
+	private static long highestIn(int bucket){
+		if(bucket < SUB_BUCKETS){
+			return bucket;
+		}
+		int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+		long lowest = (long) (SUB_BUCKETS + (bucket - SUB_BUCKETS) % SUB_BUCKETS) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+
+	/**
+	 * The value that a fraction of those recorded are at or under, to within a bucket,
+	 * 0 if there are none.
+	 * @param fraction from 0 to 1, for example 0.99 for the 99th percentile
+	 */
+	public long getPercentile(double fraction){
+		if(count == 0){
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(fraction * count));
+		long seen = 0;
+		for(int i = 0; i < BUCKETS; i++){
+			seen += counts[i];
+			if(seen >= rank){
+				// The last bucket has no upper bound
+				return i == BUCKETS - 1 ? max : Math.min(highestIn(i), max);
+			}
+		}
+		return max;
+	}
+
+	public long getCount(){
+		return count;
+	}
+
+	public long getMax(){
+		return max;
+	}
+
+	/**
+	 * Adds everything recorded in another histogram to this one.
+	 */
+	public void add(LatencyHistogram other){
+		for(int i = 0; i < BUCKETS; i++){
+			counts[i] += other.counts[i];
+		}
+		count += other.count;
+		max = Math.max(max, other.max);
+	}
+
+	public void clear(){
+		Arrays.fill(counts, 0);
+		count = 0;
+		max = 0;
+	}
+}
@@ -1,28 +1,28 @@
 package world;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import static org.apache.logging.log4j.util.Unbox.box;
 
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.graphics.g2d.Sprite;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
-import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
-import com.badlogic.gdx.maps.tiled.TiledMapTileLayer.Cell;
 import com.badlogic.gdx.math.Vector2;
 import com.swen30006.driving.Simulation;
 
+import events.SnapEvent;
+import events.TrapEvent;
+import events.WallCollisionEvent;
 import exceptions.NoStartLocationException;
-import tiles.GrassTrap;
+import replay.InputRecorder;
 import tiles.MapTile;
-import tiles.MudTrap;
+import tiles.TileKind;
 import tiles.TrapTile;
-import tiles.UtilityTile;
 import utilities.Coordinate;
 import utilities.PeekTuple;
-import world.WorldSpatial.Direction;
 
 /**
  * This class provides functionality for use within the simulation system. It is NOT intended to be
@@ -36,132 +36,161 @@ public class Car extends Sprite{
 	// Logger
 	private static Logger logger = LogManager.getLogger();
 
-	private Direction currentOrientation;
-
-
-	private Vector2 velocity;
-	private float angle = 0;
-	private float rotation = 0;
-	private boolean reversing = false;
-	private boolean accelerating = false;
-	private boolean handBrake = false;
-	private boolean wasReversing = false;
+	public static final int VIEW_SQUARE = 3;
 
 
+	private final CarPhysics physics;
+	// Where the car was before the last tick, for drawing in between ticks
+	private float previousX;
+	private float previousY;
+	private float previousRotation;
+	// Scratch state for peek, so predictions never touch the real car
+	private final CarPhysics peekPhysics;
+	private final Vector2 rawVelocity = new Vector2();
 
-	private static final float MAX_SPEED = 5f;
-	private static final float MAX_REVERSE_SPEED = 2.5f;
-	private static final float ROTATING_FACTOR = 150f;
-	private static final float STEERING_ADJUST_FACTOR = 0.05f;
-	private static final float EPSILON = 0.01f;
-	private static final float TURN_EPSILON = 0.05f;
-	private static final float BRAKING_FORCE = 2f;
-	private static final float ACCELERATION = 2f;
-	private static final float MAX_DEGREES = 360;
-	private static final float FRICTION_FORCE = 0.5f;
-	private static final int SNAP_THRESHOLD = 5;
-	public static final int VIEW_SQUARE = 3;
 
+	private final int CAR_WIDTH;
+	private final int CAR_HEIGHT;
 
+	private int health;
+	static final int INITIAL_HEALTH = 100;
 
-	private static enum State { FORWARD, REVERSE };
-	private static State carDirection = State.FORWARD;
+	private Outcome outcome = Outcome.RUNNING;
 
+	private InputRecorder recorder = null;
 
-	private static int CAR_WIDTH;
-	private static int CAR_HEIGHT;
+	private final World world;
 
-	private int health;
-	private static final int INITIAL_HEALTH = 100;
+	public Car(World world, Sprite sprite){
+		this(world, sprite, CarParameters.DEFAULT, true, 0, 0);
+	}
 
-	ArrayList<Integer> startLocation;
+	/**
+	 * A car that handles as parameters says, starting at (x, y) rather than the map's start.
+	 */
+	public Car(World world, Sprite sprite, CarParameters parameters, float x, float y){
+		this(world, sprite, parameters, false, x, y);
+	}
 
-	public Car(Sprite sprite){
+	private Car(World world, Sprite sprite, CarParameters parameters, boolean onStart, float x, float y){
 		super(sprite);
 
+		this.world = world;
 		health = INITIAL_HEALTH;
-		velocity = new Vector2();
-
-		startLocation = getStartPosition();
 
-		if(startLocation.size() > 0){
-			setX(startLocation.get(0));
-			setY(startLocation.get(1));
+		WorldMap map = world.getMap();
+		if(!onStart){
+			setX(x);
+			setY(y);
+		}
+		else if(map.hasStart()){
+			setX(map.getStartX());
+			setY(map.getStartY());
 		}
 		else{
 			try {
 				throw new NoStartLocationException();
 			} catch (NoStartLocationException e) {
-				e.printStackTrace();
+				logger.error(e.getMessage(), e);
 			}
 		}
 
 		CAR_WIDTH = (int) sprite.getWidth();
 		CAR_HEIGHT = (int) sprite.getHeight();
 
-		this.currentOrientation = WorldSpatial.Direction.EAST;
+		physics = new CarPhysics(map, CAR_WIDTH, CAR_HEIGHT, parameters);
+		physics.setPosition(getX(), getY());
+		previousX = getX();
+		previousY = getY();
+		previousRotation = 0;
+		peekPhysics = new CarPhysics(map, CAR_WIDTH, CAR_HEIGHT, parameters);
 
 	}
 
 
 	public void update(float delta) {
+		if(recorder != null){
+			recorder.endTick();
+		}
 		if(Simulation.DEBUG_MODE){
 			printDebug();
 		}
 		checkHealth();
 
-		// Get the current tile
-		MapTile currentTile = World.lookUp(getX(), getY());
-		if(currentTile.getName().equals("Utility")){
+		previousX = getX();
+		previousY = getY();
+		previousRotation = getRotation();
+		physics.setPosition(getX(), getY());
 
-			if(((UtilityTile) currentTile).isExit()){
+		// Get the current tile
+		MapTile currentTile = world.lookUp(getX(), getY());
+		if(currentTile.isExit()){
 
-				Simulation.winGame();
-			}
-		}
-		if((this.velocity.len() < EPSILON) && (World.lookUp(getX(), getY()) instanceof MudTrap)){
-			System.out.println("STUCK IN MUD. GAME OVER. ESCAPE FAILED!!");
-			System.out.println("Time elapsed: " + ((System.currentTimeMillis() - Simulation.startTime) / 1000+" seconds!"));
-			Gdx.app.exit();
-		}
-		// First calculate the force created by the engine, that is either accelerating or reversing
-		float drivingForce = 0;
-		if(accelerating || reversing){
-			drivingForce = ACCELERATION;
+			finish(Outcome.ESCAPED);
 		}
-
-		// Calculate the braking force, if not braking apply a small amount of friction so we slow down over
-		// time, given this is negligible compared to braking we do one or, not both
-		float frictionForce = 0;
-//		if(handBrake && (this.velocity.len() > EPSILON)){
-		if(handBrake){
-			frictionForce = BRAKING_FORCE;
-		} else if (this.velocity.len() > 0){
-			frictionForce = FRICTION_FORCE;
+		if((physics.getSpeed() < CarPhysics.EPSILON) && (currentTile.getKind() == TileKind.MUD)){
+			finish(Outcome.STUCK_IN_MUD);
 		}
 
 		// Check if you are standing on a trap!
 		checkTrap(currentTile,delta);
-		applySteering();
 
-		// Calculate acceleration
-		Vector2 netAcceleration = calculateAcceleration(drivingForce, frictionForce);
+		float velocityX = physics.getVelocityX();
+		float velocityY = physics.getVelocityY();
+		if(!physics.step(delta)){
+			reduceHealth(5 * delta);
+			WallCollisionEvent event = new WallCollisionEvent();
+			if(event.shouldCommit()){
+				event.x = physics.getX();
+				event.y = physics.getY();
+				event.speed = (float) Math.sqrt(velocityX * velocityX + velocityY * velocityY);
+				event.health = health;
+				event.commit();
+			}
+		}
+		setX(physics.getX());
+		setY(physics.getY());
 
-		// Apply the acceleration to velocity
-		applyAcceleration(netAcceleration, delta);
+		setRotation(physics.getRotation());
+	}
 
-		setPosition(velocity, delta);
+	/**
+	 * Puts the car back where it was before the last tick and stops it, after it has run
+	 * into another car. It costs as much health as hitting a wall.
+	 */
+	void collide(float delta){
+		setX(previousX);
+		setY(previousY);
+		physics.setPosition(previousX, previousY);
+		physics.setVelocity(0, 0);
+		reduceHealth(5 * delta);
+	}
 
-		setRotation(rotation);
+	/**
+	 * How far the car reaches from its centre, in tiles, as a circle half way between
+	 * its length and width.
+	 */
+	float getRadius(){
+		return (CAR_WIDTH + CAR_HEIGHT) / 4f / World.MAP_PIXEL_SIZE;
+	}
 
-		resetControls();
+	/**
+	 * How the car handles.
+	 */
+	public CarParameters getParameters(){
+		return physics.getParameters();
 	}
 
 	private void checkHealth() {
 		if(health <= 0){
-			System.out.println("NO HEALTH. GAME OVER. ESCAPE FAILED!!");
-			System.out.println("Time elapsed: " + ((System.currentTimeMillis() - Simulation.startTime) / 1000+" seconds!"));
-			Gdx.app.exit();
+			finish(Outcome.NO_HEALTH);
+		}
+	}
+
+	private void finish(Outcome result){
+		// The first result sticks, later ticks cannot turn a win into a loss
+		if(!outcome.isFinished()){
+			outcome = result;
 		}
 	}
 
@@ -170,326 +199,153 @@ public class Car extends Sprite{
 	}
 
 	public void applyForwardAcceleration(){
+		if(recorder != null){
+			recorder.forward();
+		}
 		// Can't accelerate if you are on mud!
-		if(!(World.lookUp(getX(), getY()) instanceof MudTrap)){
-			accelerating = true;
+		if(world.lookUp(getX(), getY()).getKind() != TileKind.MUD){
+			physics.applyForwardAcceleration();
 		}
 
 	}
 
 	public void applyReverseAcceleration(){
+		if(recorder != null){
+			recorder.reverse();
+		}
 		// Can't reverse if you are on mud!
-		if(!(World.lookUp(getX(), getY()) instanceof MudTrap)){
-			reversing = true;
-			wasReversing = true;
+		if(world.lookUp(getX(), getY()).getKind() != TileKind.MUD){
+			physics.applyReverseAcceleration();
 		}
 
 	}
 
 	public void brake(){
-		handBrake = true;
+		if(recorder != null){
+			recorder.brake();
+		}
+		physics.brake();
 	}
 
 
 	/** Snap to an orientation if you get close to it! **/
 	public void turnLeft(float delta){
-
-		angle += ROTATING_FACTOR * delta;
-		if(reversing){
-			angle *= -1;
-		}
-		snapTo(reversing, currentOrientation, WorldSpatial.RelativeDirection.LEFT);
-
-	}
-
-	private void snapTo(boolean reversing, WorldSpatial.Direction currentOrientation, WorldSpatial.RelativeDirection turnDirection) {
-		float angleDifference = SNAP_THRESHOLD;
-		if((!reversing && turnDirection.equals(WorldSpatial.RelativeDirection.LEFT)) || (reversing && turnDirection.equals(WorldSpatial.RelativeDirection.RIGHT))){
-
-			switch(currentOrientation){
-			case EAST:
-				angleDifference = WorldSpatial.NORTH_DEGREE - getAngle();
-				if(angleDifference >= 0 && angleDifference < SNAP_THRESHOLD){
-					angle = angleDifference;
-					this.currentOrientation = WorldSpatial.Direction.NORTH;
-				}
-				break;
-			case NORTH:
-				angleDifference = WorldSpatial.WEST_DEGREE - getAngle();
-				if(angleDifference >= 0 && angleDifference < SNAP_THRESHOLD){
-					angle = angleDifference;
-					this.currentOrientation = WorldSpatial.Direction.WEST;
-				}
-				break;
-			case SOUTH:
-				angleDifference = WorldSpatial.EAST_DEGREE_MAX - getAngle();
-				if(angleDifference >= 0 && angleDifference < SNAP_THRESHOLD){
-					angle = angleDifference;
-					this.currentOrientation = WorldSpatial.Direction.EAST;
-				}
-				break;
-			case WEST:
-				angleDifference = WorldSpatial.SOUTH_DEGREE - getAngle();
-				if(angleDifference >= 0 && angleDifference < SNAP_THRESHOLD){
-					angle = angleDifference;
-					this.currentOrientation = WorldSpatial.Direction.SOUTH;
-				}
-				break;
-			default:
-				break;
-
-			}
-
+		if(recorder != null){
+			recorder.turnLeft(delta);
 		}
-		else if((!reversing && turnDirection.equals(WorldSpatial.RelativeDirection.RIGHT)) || (reversing && turnDirection.equals(WorldSpatial.RelativeDirection.LEFT))){
-			switch(currentOrientation){
-			case EAST:
-				angleDifference = getAngle() - WorldSpatial.SOUTH_DEGREE;
-				if(angleDifference >= 0 && angleDifference < SNAP_THRESHOLD){
-					angle = -angleDifference;
-					this.currentOrientation = WorldSpatial.Direction.SOUTH;
-				}
-				break;
-			case NORTH:
-				angleDifference = getAngle();
-				if(angleDifference >= 0 && angleDifference < SNAP_THRESHOLD){
-					angle = -angleDifference;
-					this.currentOrientation = WorldSpatial.Direction.EAST;
-				}
-				break;
-			case SOUTH:
-				angleDifference = getAngle() - WorldSpatial.WEST_DEGREE;
-				if(angleDifference >= 0 && angleDifference < SNAP_THRESHOLD){
-					angle = -angleDifference;
-					this.currentOrientation = WorldSpatial.Direction.WEST;
-				}
-				break;
-			case WEST:
-				angleDifference = getAngle() - WorldSpatial.NORTH_DEGREE;
-				if(angleDifference >= 0 && angleDifference < SNAP_THRESHOLD){
-					angle = -angleDifference;
-					this.currentOrientation = WorldSpatial.Direction.NORTH;
-				}
-				break;
-			default:
-				break;
 
-			}
+		WorldSpatial.Direction orientation = physics.getOrientation();
+		physics.turnLeft(delta);
+		if(physics.getOrientation() != orientation){
+			snapped(orientation);
 		}
-
 	}
 
-
 	public void turnRight(float delta) {
-		angle -= ROTATING_FACTOR * delta;
-
-		if(reversing){
-			angle *= -1;
+		if(recorder != null){
+			recorder.turnRight(delta);
 		}
-		snapTo(reversing,currentOrientation,WorldSpatial.RelativeDirection.RIGHT);
-
-	}
-
-	private void applySteering(){
-
-
-		if(velocity.len() > TURN_EPSILON && !handBrake && !(World.lookUp(getX(), getY()) instanceof GrassTrap)) {
-
-			rotation += angle;
-
-			if(angle > TURN_EPSILON || angle < TURN_EPSILON ){
-				// Slowly update turnings
-				int sign = angle > 0 ? 1 : -1;
-				float magnitude = Math.abs(angle) - Math.abs(angle)*STEERING_ADJUST_FACTOR;
-				angle = magnitude * sign;
-			} else {
-				angle = 0;
-			}
+		WorldSpatial.Direction orientation = physics.getOrientation();
+		physics.turnRight(delta);
+		if(physics.getOrientation() != orientation){
+			snapped(orientation);
 		}
 	}
 
-	private Vector2 calculateAcceleration(float drivingForce, float frictionForce){
-
-		Vector2 acceleration = new Vector2(1,0);
-		acceleration.rotate(rotation);
-		acceleration.scl(drivingForce);
-
-
-		Vector2 friction = new Vector2(1,0);
-		if(acceleration.len() > 0){
-
-			friction.rotate(acceleration.angle() - MAX_DEGREES/2);
-		} else {
-
-			friction.rotate((rotation - MAX_DEGREES/2) % MAX_DEGREES);
+	private void snapped(WorldSpatial.Direction from){
+		SnapEvent event = new SnapEvent();
+		if(event.shouldCommit()){
+			event.from = from.name();
+			event.to = physics.getOrientation().name();
+			event.angle = physics.getAngle();
+			event.commit();
 		}
-		friction.scl(frictionForce);
-
-
-
-		Vector2 netAcceleration = acceleration.add(friction);
-		return netAcceleration;
-	}
-
-	private void applyAcceleration(Vector2 acceleration, float delta){
-
-
-		this.velocity.setAngle(rotation);
-
-		if((carDirection.equals(State.REVERSE) && accelerating) || (carDirection.equals(State.FORWARD) && reversing)){
-
-			this.velocity.x -= acceleration.x * delta;
-			this.velocity.y -= acceleration.y * delta;
-		}
-		else{
-			this.velocity.x += acceleration.x * delta;
-			this.velocity.y += acceleration.y * delta;
-		}
-
-
-
-		if(this.velocity.len() > MAX_SPEED && !reversing) {
-			float scalar = this.velocity.len() / MAX_SPEED;
-			this.velocity.scl(1/scalar);
-		}
-		else if(this.velocity.len() > MAX_REVERSE_SPEED && reversing){
-			float scalar = this.velocity.len() / MAX_REVERSE_SPEED;
-			this.velocity.scl(1/scalar);
-		}
-		else if (this.velocity.len() < EPSILON){
-			this.velocity.x = 0;
-			this.velocity.y = 0;
-			if(carDirection.equals(State.FORWARD)){
-				carDirection = State.REVERSE;
-			}
-			else{
-				carDirection = State.FORWARD;
-			}
-			if(wasReversing){
-				wasReversing = false;
-			}
-		}
-		if(carDirection.equals(State.REVERSE)){
-
-			velocity.rotate(180);
-		}
-	}
-
-	private void setPosition(Vector2 velocity, float delta){
-		double xOffset = ((CAR_WIDTH / 2)*1.0/World.MAP_PIXEL_SIZE);
-		double yOffset = ((CAR_HEIGHT/2)*1.0/World.MAP_PIXEL_SIZE);
-
-		double futureX = getX() + velocity.x * delta;
-		double futureY = getY() + velocity.y * delta;
-		if(velocity.x > 0){
-			futureX += xOffset;
-		}
-		if(velocity.x < 0){
-			futureX -= xOffset;
-		}
-
-		if(velocity.y > 0){
-			futureY += yOffset;
-		}
-		else{
-			futureY -= xOffset;
-		}
-		MapTile tile = World.lookUp(futureX, futureY);
-
-		if(!tile.getName().equals("Empty") && !tile.getName().equals("Wall")){
-
-			setX(getX() + velocity.x * delta);
-			setY(getY() + velocity.y * delta);
-		}
-		else{
-			velocity.x = 0;
-			velocity.y = 0;
-			reduceHealth(5 * delta);
-		}
-
-	}
-
-	private void resetControls(){
-		angle = 0;
-		reversing = false;
-		accelerating = false;
-		handBrake = false;
 	}
 
 	public void draw(SpriteBatch spriteBatch){
 		update(Gdx.graphics.getDeltaTime());
 	}
 
-	private ArrayList<Integer> getStartPosition(){
-
-		ArrayList<Integer> startLocation = new ArrayList<Integer>();
-
-		TiledMapTileLayer utilityLayer = (TiledMapTileLayer) World.getMap().getLayers().get("Utility");
-
-
-		for(int x = 0; x < utilityLayer.getWidth(); x++){
-			for(int y = 0; y < utilityLayer.getHeight(); y++){
-				Cell utilityCell = utilityLayer.getCell(x, y);
-				if(utilityCell != null && utilityCell.getTile().getProperties().get("startLocation") != null){
-					if((Boolean) utilityCell.getTile().getProperties().get("startLocation")){
-						startLocation.add(x);
-						startLocation.add(y);
-						break;
-					}
-				}
+	/**
+	 * Draws the car part way between where it was before the last tick (alpha 0) and
+	 * where it is now (alpha 1), so motion looks smooth when frames and ticks don't line up.
+	 */
+	public void draw(Batch batch, float alpha){
+		float x = getX();
+		float y = getY();
+		float rotation = getRotation();
+		setX(getDrawX(alpha));
+		setY(getDrawY(alpha));
+		setRotation(previousRotation + (rotation - previousRotation) * alpha);
+		draw(batch);
+		setX(x);
+		setY(y);
+		setRotation(rotation);
+	}
 
-			}
-		}
-		return startLocation;
+	public float getDrawX(float alpha){
+		return previousX + (getX() - previousX) * alpha;
 	}
 
+	public float getDrawY(float alpha){
+		return previousY + (getY() - previousY) * alpha;
+	}
 
 	public void checkTrap(MapTile currentTile, float delta){
 
-		if(currentTile.getName().equals("Trap")){
+		if(currentTile.isTrap()){
 			TrapTile trapTile = (TrapTile) currentTile;
+			TrapEvent event = new TrapEvent();
+			boolean recording = event.isEnabled();
+			if(recording){
+				event.begin();
+				event.speedBefore = getVelocity();
+				event.healthBefore = health;
+			}
 			trapTile.applyTo(this, delta);
+			if(recording){
+				event.trapType = trapTile.getType();
+				event.tileX = Math.round(getX());
+				event.tileY = Math.round(getY());
+				event.speedAfter = getVelocity();
+				event.healthAfter = health;
+				event.commit();
+			}
 		}
 	}
 
 	public void setVelocity(float x, float y) { /* Better if this wasn't public but needed in traps */
-		velocity.x = x;
-		velocity.y = y;
+		physics.setVelocity(x, y);
 	}
 
 
 	public void setVelocity(Vector2 scl) {
-		this.velocity = scl;
+		physics.setVelocity(scl.x, scl.y);
 
 	}
 
 	/** ACCESSIBLE METHODS **/
 	public float getVelocity(){
-		return velocity.len();
+		return physics.getSpeed();
 	}
 
+	/**
+	 * A snapshot of the current velocity, the same vector is reused on every call.
+	 */
 	public Vector2 getRawVelocity(){
-		return velocity;
+		return rawVelocity.set(physics.getVelocityX(), physics.getVelocityY());
 	}
 
 
 
 
-	// Given a velocity and the degree I want to end up on,
-	// where will I be? Note: This method is a composition of other methods used above, would be best
-	// if physics calculations were abstracted into their own class.
+	// Given a velocity and the degree I want to end up on, where will I be? Runs the same
+	// physics as update on a scratch copy of the car, holding the accelerator down and
+	// turning until the degree is reached.
 	public PeekTuple peek(Vector2 velocity, float degree, WorldSpatial.RelativeDirection turnDirection, float delta){
 
-
-		float currentAngle = angle;
-		float currentRotation = rotation;
-		boolean currentlyAccelerating = this.accelerating;
-		boolean currentlyReversing = this.reversing;
-		float currentX = getX();
-		float currentY = getY();
-		Vector2 currentVelocity = new Vector2(velocity.x,velocity.y);
-		State currentCarDirection = carDirection;
-
+		peekPhysics.copyFrom(physics);
+		peekPhysics.setVelocity(velocity.x, velocity.y);
 
 		boolean reachable = true;
 
@@ -503,151 +359,94 @@ public class Car extends Sprite{
 			degree = 360 - degree;
 		}
 
+		float currentRotation = peekPhysics.getRotation();
 		float timeDifference = -1;
 		if(degree > 0){
-			timeDifference = ((Math.abs(currentRotation-degree) % 360 + 360) % 360) / (ROTATING_FACTOR * delta);
+			timeDifference = ((Math.abs(currentRotation-degree) % 360 + 360) % 360) / (physics.getParameters().getRotatingFactor() * delta);
 		}
 		else{
-			timeDifference = ((Math.abs(currentRotation+degree) % 360 + 360) % 360) / (ROTATING_FACTOR * delta);
+			timeDifference = ((Math.abs(currentRotation+degree) % 360 + 360) % 360) / (physics.getParameters().getRotatingFactor() * delta);
 		}
-				
+
 
 		for(int i = 0; i < (int) Math.round(timeDifference); i++){
+			currentRotation = peekPhysics.getRotation();
 			if((currentRotation < degree && turnDirection.equals(WorldSpatial.RelativeDirection.LEFT) || (currentRotation > degree && turnDirection.equals(WorldSpatial.RelativeDirection.RIGHT)))){
-				// Calculate Right turns
 				if(turnDirection.equals(WorldSpatial.RelativeDirection.RIGHT)){
-					currentAngle -= ROTATING_FACTOR * delta;
-					if(currentlyReversing){
-						currentAngle *= -1;
-					}
+					peekPhysics.turnRight(delta);
 				}
-				// Calculate Left turns
 				else{
-					currentAngle += ROTATING_FACTOR * delta;
-					if(currentlyReversing){
-						currentAngle *= -1;
-					}
+					peekPhysics.turnLeft(delta);
 				}
 			}
-
-
-
-
-
-			if(currentVelocity.len() > EPSILON) {
-				// Update our rotation
-				currentRotation += currentAngle;
-				// Slowly return our rotation to 0 if not turning
-				if(currentAngle > TURN_EPSILON || currentAngle < TURN_EPSILON ){
-					// Slowly update turnings
-					int sign = currentAngle > 0 ? 1 : -1;
-					float magnitude = Math.abs(currentAngle) - Math.abs(currentAngle)*STEERING_ADJUST_FACTOR;
-					currentAngle = magnitude * sign;
-				} else {
-					currentAngle = 0;
-				}
-			}
-
-			// Create an acceleration vector by rotating a unit vector
-			// and scaling with the appropriate force
-			Vector2 acceleration = new Vector2(1,0);
-			acceleration.rotate(currentRotation);
-			acceleration.scl(ACCELERATION);
-
-			// Create a friction vector
-			Vector2 friction = new Vector2(1,0);
-			if(acceleration.len() > 0){
-				// Rotate to face the other direction
-				friction.rotate(acceleration.angle() - MAX_DEGREES/2);
-			} else {
-				// Apply friction in the opposite direction that we are facing
-				friction.rotate((currentRotation - MAX_DEGREES/2) % MAX_DEGREES);
-			}
-			friction.scl(FRICTION_FORCE);
-
-			// Calculate net change
-
-			Vector2 netAcceleration = acceleration.add(friction);
-
-
-
-			// Calculating the movement
-			// Rotate our velocity (highly simplified effect of rotating the car) and update with acceleration
-			currentVelocity.setAngle(currentRotation);
-			if((currentCarDirection.equals(State.REVERSE) && currentlyAccelerating) || (currentCarDirection.equals(State.FORWARD) && currentlyReversing)){
-				currentVelocity.x -= netAcceleration.x * delta;
-				currentVelocity.y -= netAcceleration.y * delta;
-			}
-			else{
-				currentVelocity.x += netAcceleration.x * delta;
-				currentVelocity.y += netAcceleration.y * delta;
-			}
-
-			// If we get greater than max velocity then limit us to that, if we're smaller than epsilon stop
-			if(currentVelocity.len() > MAX_SPEED ) {
-				float scalar = currentVelocity.len() / MAX_SPEED;
-				currentVelocity.scl(1/scalar);
-			}
-			else if (currentVelocity.len() < EPSILON){
-				currentVelocity.x = 0;
-				currentVelocity.y = 0;
-				if(currentCarDirection.equals(State.FORWARD)){
-					currentCarDirection = State.REVERSE;
-				}
-				else{
-					currentCarDirection = State.FORWARD;
-				}
-			}
-
-			if(currentCarDirection.equals(State.REVERSE)){
-
-				currentVelocity.rotate(180);
-			}
-
-			currentX += currentVelocity.x * delta;
-			currentY += currentVelocity.y * delta;
+			peekPhysics.applyForwardAcceleration();
 
 			// Check if you will hit a wall
-			if(World.lookUp(currentX, currentY).getName().equals("Wall")){
+			if(!peekPhysics.step(delta)){
 				reachable = false;
 			}
-			currentAngle = 0;
 		}
 
 
 
-		return new PeekTuple(new Coordinate(Math.round(currentX), Math.round(currentY)),reachable);
+		return new PeekTuple(new Coordinate(Math.round(peekPhysics.getX()), Math.round(peekPhysics.getY())),reachable);
 
 	}
 
-	// Debug mode for the car
+	// Debug mode for the car. Logged every tick, so it is parameterised and boxes without
+	// allocating, and log4j2.xml limits how many of these get written a second
 	public void printDebug(){
-		logger.info(
-				"\nCurrent Speed: "+getVelocity()+"\n"+
-				"Current Angle: "+getAngle()+"\n"+
-				"Current Position: "+getPosition()+"\n"+
-				"Current Tile: "+World.lookUp(getX(), getY()).getName()+"\n\n"
-				);
+		logger.info("Speed: {} Angle: {} Position: {},{} Tile: {}",
+				box(getVelocity()), box(getAngle()), box(getX()), box(getY()),
+				world.lookUp(getX(), getY()).getName());
 	}
 
 	public float getAngle(){
-		return (rotation % 360 + 360) % 360;
+		return physics.getAngle();
 	}
 
 	public HashMap<Coordinate,MapTile> getView(){
-		int currentX = Math.round(getX());
-		int currentY = Math.round(getY());
+		ViewWindow window = new ViewWindow();
+		fillView(window);
+		return window.toMap();
+	}
+
+	/**
+	 * Refills a window with what the car can currently see, without allocating.
+	 */
+	public void fillView(ViewWindow window){
+		window.fill(world.getTileGrid(), Math.round(getX()), Math.round(getY()));
+	}
 
-		HashMap<Coordinate,MapTile> subMap = new HashMap<Coordinate,MapTile>();
-		for(int x = currentX - VIEW_SQUARE; x <= currentX+VIEW_SQUARE; x++){
-			for(int y = currentY - VIEW_SQUARE; y <= currentY+VIEW_SQUARE; y++){
-				MapTile tile = World.lookUp(x,y);
-				subMap.put(new Coordinate(x,y),tile);
+	/**
+	 * The map the car is driving on.
+	 */
+	public WorldMap getMap(){
+		return world.getMap();
+	}
 
-			}
-		}
+	/**
+	 * A new motion model of this car, for trying out controls without moving the car.
+	 * Use copyPhysicsTo to bring it up to date.
+	 */
+	public CarPhysics createPhysicsModel(){
+		CarPhysics model = new CarPhysics(world.getMap(), CAR_WIDTH, CAR_HEIGHT, physics.getParameters());
+		model.copyFrom(physics);
+		return model;
+	}
 
-		return subMap;
+	/**
+	 * Sets a model made by createPhysicsModel to the car's current motion state.
+	 */
+	public void copyPhysicsTo(CarPhysics model){
+		model.copyFrom(physics);
+	}
+
+	/**
+	 * Distances to walls and traps from every tile of the map the car is on.
+	 */
+	public DistanceFields getDistanceFields(){
+		return world.getDistanceFields();
 	}
 
 	public String getPosition(){
@@ -658,8 +457,44 @@ public class Car extends Sprite{
 		return this.health;
 	}
 
+	public Outcome getOutcome(){
+		return this.outcome;
+	}
+
+	/**
+	 * Records every control call made on this car from now on, null to stop recording.
+	 */
+	public void setInputRecorder(InputRecorder recorder){
+		this.recorder = recorder;
+	}
+
+	/**
+	 * A hash of everything that determines how the car moves from here on, used to check
+	 * that a replay ends in exactly the same state as the run it was recorded from.
+	 */
+	public long stateHash(){
+		long hash = 0xcbf29ce484222325L;
+		hash = mix(hash, Float.floatToIntBits(getX()));
+		hash = mix(hash, Float.floatToIntBits(getY()));
+		hash = mix(hash, Float.floatToIntBits(physics.getVelocityX()));
+		hash = mix(hash, Float.floatToIntBits(physics.getVelocityY()));
+		hash = mix(hash, Float.floatToIntBits(physics.getRotation()));
+		hash = mix(hash, Float.floatToIntBits(physics.getSteeringAngle()));
+		hash = mix(hash, health);
+		hash = mix(hash, physics.getDirection().ordinal());
+		hash = mix(hash, physics.getOrientation().ordinal());
+		hash = mix(hash, physics.wasReversing() ? 1 : 0);
+		hash = mix(hash, outcome.ordinal());
+		return hash;
+	}
+
+	private static long mix(long hash, int value){
+		// FNV-1a, one int at a time
+		return (hash ^ value) * 0x100000001b3L;
+	}
+
 	public WorldSpatial.Direction getOrientation(){
-		return this.currentOrientation;
+		return physics.getOrientation();
 	}
 
 
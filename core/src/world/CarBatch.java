@@ -0,0 +1,630 @@
+package world;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.badlogic.gdx.math.MathUtils;
+
+import tiles.GrassTrap;
+import tiles.LavaTrap;
+import tiles.MapTile;
+import tiles.MudTrap;
+import tiles.TileKind;
+import tiles.TrapTile;
+
+/**
+ * Steps a large number of independent cars on one map, for headless experiments with
+ * far more cars than are worth a Car, a Sprite and a controller each.
+ *
+ * Each part of the cars' state is kept in its own array indexed by car number, and a
+ * step runs through them in a single loop with no objects and no virtual calls. Tiles
+ * are looked up in a flat array of palette numbers built from the map once, with what
+ * each palette entry does to a car in small tables, and shared read-only by every
+ * thread stepping the batch. Cars in a batch do not see or hit each other, so the batch
+ * can be split across a ForkJoinPool and gives the same results however it is split.
+ *
+ * A car in a batch ends up exactly where a Car would, bit for bit, given the same
+ * controls: the arithmetic is that of Car.update and CarPhysics.step, in the same order,
+ * which the headless BatchCheck confirms tick by tick.
+ * Controls are set as flags for the next step and applied as if they had been called on
+ * a Car in the order forward, reverse, brake, left, right, turning by the step's delta.
+ * As with cars in a World, a car that has finished is no longer stepped.
+ *
+ * Traps are applied from their settings, so only the built-in LavaTrap, MudTrap and
+ * GrassTrap are supported; a map with any other trap cannot be used.
+ */
+public class CarBatch {
+
+	/** Control flags for setControls, as Car.applyForwardAcceleration and so on */
+	public static final int FORWARD = 1;
+	public static final int REVERSE = 1 << 1;
+	public static final int BRAKE = 1 << 2;
+	public static final int LEFT = 1 << 3;
+	public static final int RIGHT = 1 << 4;
+
+	// Turning the velocity round, as CarPhysics works it out every step
+	private static final float HALF_TURN_COS = (float) Math.cos(180 * MathUtils.degreesToRadians);
+	private static final float HALF_TURN_SIN = (float) Math.sin(180 * MathUtils.degreesToRadians);
+
+	// Cars stepped by one task when the batch is split
+	private static final int SLICE_CARS = 1024;
+
+	// State flags, the booleans of CarPhysics
+	private static final int REVERSING = 1;
+	private static final int ACCELERATING = 1 << 1;
+	private static final int HAND_BRAKE = 1 << 2;
+	private static final int WAS_REVERSING = 1 << 3;
+	// CarPhysics.State.REVERSE
+	private static final int BACKWARDS = 1 << 4;
+
+	// What a trap does to the car, by palette entry
+	private static final byte NO_TRAP = 0;
+	private static final byte LAVA = 1;
+	private static final byte MUD = 2;
+
+	private static final byte RUNNING = (byte) Outcome.RUNNING.ordinal();
+	private static final WorldSpatial.Direction[] DIRECTIONS = WorldSpatial.Direction.values();
+	private static final Outcome[] OUTCOMES = Outcome.values();
+	private static final int EAST = WorldSpatial.Direction.EAST.ordinal();
+	private static final int WEST = WorldSpatial.Direction.WEST.ordinal();
+	private static final int SOUTH = WorldSpatial.Direction.SOUTH.ordinal();
+	private static final int NORTH = WorldSpatial.Direction.NORTH.ordinal();
+
+	// The map, as the palette number on top of each tile, row by row
+	private final int width;
+	private final int height;
+	private final byte[] tiles;
+	// By palette number
+	private final TileKind[] kinds;
+	private final boolean[] blocked;
+	private final boolean[] exits;
+	private final byte[] traps;
+	private final float[] trapFactors;
+
+	private final double xOffset;
+	private final double yOffset;
+
+	private int size = 0;
+
+	// By car number
+	private float[] x;
+	private float[] y;
+	private float[] vx;
+	private float[] vy;
+	private float[] rotation;
+	private float[] angle;
+	private int[] health;
+	private int[] flags;
+	private byte[] orientation;
+	private byte[] outcome;
+	private byte[] controls;
+
+	// How each car handles, by car number
+	private float[] maxSpeed;
+	private float[] maxReverseSpeed;
+	private float[] acceleration;
+	private float[] brakingForce;
+	private float[] friction;
+	private float[] rotatingFactor;
+
+	/**
+	 * @param carWidth the width of the cars' sprite in pixels
+	 * @param carHeight the height of the cars' sprite in pixels
+	 * @param capacity how many cars to make room for up front
+	 * @throws IllegalArgumentException if the map has a trap the batch cannot apply
+	 */
+	public CarBatch(WorldMap map, int carWidth, int carHeight, int capacity){
+		TileGrid grid = map.getTileGrid();
+		width = grid.getWidth();
+		height = grid.getHeight();
+
+		int paletteSize = grid.getPaletteSize();
+		kinds = new TileKind[paletteSize];
+		blocked = new boolean[paletteSize];
+		exits = new boolean[paletteSize];
+		traps = new byte[paletteSize];
+		trapFactors = new float[paletteSize];
+		for(int i = 0; i < paletteSize; i++){
+			MapTile tile = grid.getTile(i);
+			kinds[i] = tile.getKind();
+			blocked[i] = tile.isBlocked();
+			exits[i] = tile.isExit();
+			if(!tile.isTrap()){
+				continue;
+			}
+			if(tile.getClass() == LavaTrap.class){
+				traps[i] = LAVA;
+				trapFactors[i] = ((LavaTrap) tile).getDamagePerSecond();
+			}
+			else if(tile.getClass() == MudTrap.class){
+				traps[i] = MUD;
+				trapFactors[i] = ((MudTrap) tile).getSlowdownFactor();
+			}
+			else if(tile.getClass() != GrassTrap.class){
+				throw new IllegalArgumentException("A CarBatch cannot apply " + ((TrapTile) tile).getType() + " traps");
+			}
+		}
+
+		tiles = new byte[width * height];
+		for(int row = 0; row < height; row++){
+			for(int column = 0; column < width; column++){
+				tiles[row * width + column] = (byte) grid.tileIndex(column, row);
+			}
+		}
+
+		xOffset = ((carWidth / 2)*1.0/World.MAP_PIXEL_SIZE);
+		yOffset = ((carHeight / 2)*1.0/World.MAP_PIXEL_SIZE);
+		resize(Math.max(capacity, 1));
+	}
+
+	private void resize(int capacity){
+		x = grow(x, capacity);
+		y = grow(y, capacity);
+		vx = grow(vx, capacity);
+		vy = grow(vy, capacity);
+		rotation = grow(rotation, capacity);
+		angle = grow(angle, capacity);
+		health = health == null ? new int[capacity] : Arrays.copyOf(health, capacity);
+		flags = flags == null ? new int[capacity] : Arrays.copyOf(flags, capacity);
+		orientation = grow(orientation, capacity);
+		outcome = grow(outcome, capacity);
+		controls = grow(controls, capacity);
+		maxSpeed = grow(maxSpeed, capacity);
+		maxReverseSpeed = grow(maxReverseSpeed, capacity);
+		acceleration = grow(acceleration, capacity);
+		brakingForce = grow(brakingForce, capacity);
+		friction = grow(friction, capacity);
+		rotatingFactor = grow(rotatingFactor, capacity);
+	}
+
+	private static float[] grow(float[] values, int capacity){
+		return values == null ? new float[capacity] : Arrays.copyOf(values, capacity);
+	}
+
+	private static byte[] grow(byte[] values, int capacity){
+		return values == null ? new byte[capacity] : Arrays.copyOf(values, capacity);
+	}
+
+	/**
+	 * Adds a car standing still at (x, y), facing east, as a new Car would be.
+	 * Must not be called while the batch is being stepped.
+	 * @return the new car's number
+	 */
+	public int add(float x, float y, CarParameters parameters){
+		if(size == this.x.length){
+			resize(size * 2);
+		}
+		int car = size++;
+		this.x[car] = x;
+		this.y[car] = y;
+		health[car] = Car.INITIAL_HEALTH;
+		orientation[car] = (byte) EAST;
+		outcome[car] = RUNNING;
+		maxSpeed[car] = parameters.getMaxSpeed();
+		maxReverseSpeed[car] = parameters.getMaxReverseSpeed();
+		acceleration[car] = parameters.getAcceleration();
+		brakingForce[car] = parameters.getBrakingForce();
+		friction[car] = parameters.getFrictionForce();
+		rotatingFactor[car] = parameters.getRotatingFactor();
+		return car;
+	}
+
+	public int size(){
+		return size;
+	}
+
+	/**
+	 * Sets the controls a car uses for the next step, a combination of FORWARD, REVERSE,
+	 * BRAKE, LEFT and RIGHT. They are released after the step.
+	 */
+	public void setControls(int car, int controls){
+		this.controls[car] = (byte) controls;
+	}
+
+	/**
+	 * Steps every car that has not finished by delta, on this thread.
+	 */
+	public void step(float delta){
+		step(0, size, delta);
+	}
+
+	/**
+	 * Steps every car that has not finished by delta, split into slices run on pool.
+	 */
+	public void step(float delta, ForkJoinPool pool){
+		pool.invoke(new Slice(0, size, delta));
+	}
+
+	private class Slice extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+		private final float delta;
+
+		Slice(int from, int to, float delta){
+			this.from = from;
+			this.to = to;
+			this.delta = delta;
+		}
+
+		@Override
+		protected void compute(){
+			if(to - from <= SLICE_CARS){
+				step(from, to, delta);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new Slice(from, middle, delta), new Slice(middle, to, delta));
+		}
+	}
+
+	private void step(int from, int to, float delta){
+		for(int car = from; car < to; car++){
+			if(outcome[car] == RUNNING){
+				stepCar(car, delta);
+			}
+			controls[car] = 0;
+		}
+	}
+
+	/**
+	 * The palette number of the tile at (x, y), rounded as WorldMap.lookUp does.
+	 */
+	private int tileAt(double x, double y){
+		int column = (int) Math.round(x);
+		int row = (int) Math.round(y);
+		if(column < 0 || row < 0 || column >= width || row >= height){
+			return TileGrid.EMPTY;
+		}
+		return tiles[row * width + column] & 0xff;
+	}
+
+	/**
+	 * One car's controls and Car.update, with the car's state in locals.
+	 */
+	private void stepCar(int car, float delta){
+		float x = this.x[car];
+		float y = this.y[car];
+		float vx = this.vx[car];
+		float vy = this.vy[car];
+		float rotation = this.rotation[car];
+		float angle = this.angle[car];
+		int health = this.health[car];
+		int flags = this.flags[car];
+		int orientation = this.orientation[car];
+		int outcome = this.outcome[car];
+		int controls = this.controls[car];
+
+		// The controller's calls, in a fixed order
+		int tile = tileAt(x, y);
+		boolean onMud = kinds[tile] == TileKind.MUD;
+		if((controls & FORWARD) != 0 && !onMud){
+			flags |= ACCELERATING;
+		}
+		if((controls & REVERSE) != 0 && !onMud){
+			flags |= REVERSING | WAS_REVERSING;
+		}
+		if((controls & BRAKE) != 0){
+			flags |= HAND_BRAKE;
+		}
+		if((controls & LEFT) != 0){
+			angle += rotatingFactor[car] * delta;
+			if((flags & REVERSING) != 0){
+				angle *= -1;
+			}
+			boolean reversing = (flags & REVERSING) != 0;
+			long snapped = snap(reversing ? -1 : 1, orientation, rotation, angle);
+			angle = Float.intBitsToFloat((int) snapped);
+			orientation = (int) (snapped >>> 32);
+		}
+		if((controls & RIGHT) != 0){
+			angle -= rotatingFactor[car] * delta;
+			if((flags & REVERSING) != 0){
+				angle *= -1;
+			}
+			boolean reversing = (flags & REVERSING) != 0;
+			long snapped = snap(reversing ? 1 : -1, orientation, rotation, angle);
+			angle = Float.intBitsToFloat((int) snapped);
+			orientation = (int) (snapped >>> 32);
+		}
+
+		// Car.update
+		if(health <= 0){
+			outcome = finish(outcome, Outcome.NO_HEALTH);
+		}
+		if(exits[tile]){
+			outcome = finish(outcome, Outcome.ESCAPED);
+		}
+		if((length(vx, vy) < CarPhysics.EPSILON) && onMud){
+			outcome = finish(outcome, Outcome.STUCK_IN_MUD);
+		}
+		if(traps[tile] == LAVA){
+			health -= trapFactors[tile] * delta;
+		}
+		else if(traps[tile] == MUD){
+			float xReduction = vx*trapFactors[tile]*delta;
+			float yReduction = vy*trapFactors[tile]*delta;
+			vx = vx-xReduction;
+			vy = vy-yReduction;
+		}
+
+		// CarPhysics.step
+		boolean reversing = (flags & REVERSING) != 0;
+		boolean accelerating = (flags & ACCELERATING) != 0;
+		boolean handBrake = (flags & HAND_BRAKE) != 0;
+		boolean backwards = (flags & BACKWARDS) != 0;
+		boolean wasReversing = (flags & WAS_REVERSING) != 0;
+
+		float drivingForce = 0;
+		if(accelerating || reversing){
+			drivingForce = acceleration[car];
+		}
+		float frictionForce = 0;
+		if(handBrake){
+			frictionForce = brakingForce[car];
+		} else if (length(vx, vy) > 0){
+			frictionForce = friction[car];
+		}
+
+		// applySteering
+		if(length(vx, vy) > CarPhysics.TURN_EPSILON && !handBrake && kinds[tileAt(x, y)] != TileKind.GRASS) {
+			rotation += angle;
+			if(angle > CarPhysics.TURN_EPSILON || angle < CarPhysics.TURN_EPSILON ){
+				int sign = angle > 0 ? 1 : -1;
+				float magnitude = Math.abs(angle) - Math.abs(angle)*CarPhysics.STEERING_ADJUST_FACTOR;
+				angle = magnitude * sign;
+			} else {
+				angle = 0;
+			}
+		}
+
+		// applyAcceleration, which works out the heading's cos and sin twice over
+		float radians = rotation * MathUtils.degreesToRadians;
+		float headingCos = (float) Math.cos(radians);
+		float headingSin = (float) Math.sin(radians);
+		float accelerationX = (1 * headingCos - 0 * headingSin) * drivingForce;
+		float accelerationY = (1 * headingSin + 0 * headingCos) * drivingForce;
+
+		float frictionAngle;
+		if(length(accelerationX, accelerationY) > 0){
+			frictionAngle = angleOf(accelerationX, accelerationY) - CarPhysics.MAX_DEGREES/2;
+		} else {
+			frictionAngle = (rotation - CarPhysics.MAX_DEGREES/2) % CarPhysics.MAX_DEGREES;
+		}
+		radians = frictionAngle * MathUtils.degreesToRadians;
+		float cos = (float) Math.cos(radians);
+		float sin = (float) Math.sin(radians);
+		float netX = accelerationX + (1 * cos - 0 * sin) * frictionForce;
+		float netY = accelerationY + (1 * sin + 0 * cos) * frictionForce;
+
+		float speed = length(vx, vy);
+		vx = speed * headingCos - 0 * headingSin;
+		vy = speed * headingSin + 0 * headingCos;
+
+		if((backwards && accelerating) || (!backwards && reversing)){
+			vx -= netX * delta;
+			vy -= netY * delta;
+		}
+		else{
+			vx += netX * delta;
+			vy += netY * delta;
+		}
+
+		speed = length(vx, vy);
+		if(speed > maxSpeed[car] && !reversing) {
+			float scalar = speed / maxSpeed[car];
+			vx *= 1/scalar;
+			vy *= 1/scalar;
+		}
+		else if(speed > maxReverseSpeed[car] && reversing){
+			float scalar = speed / maxReverseSpeed[car];
+			vx *= 1/scalar;
+			vy *= 1/scalar;
+		}
+		else if (speed < CarPhysics.EPSILON){
+			vx = 0;
+			vy = 0;
+			backwards = !backwards;
+			wasReversing = false;
+		}
+		if(backwards){
+			float rotatedX = vx * HALF_TURN_COS - vy * HALF_TURN_SIN;
+			float rotatedY = vx * HALF_TURN_SIN + vy * HALF_TURN_COS;
+			vx = rotatedX;
+			vy = rotatedY;
+		}
+
+		// move
+		double futureX = x + vx * delta;
+		double futureY = y + vy * delta;
+		if(vx > 0){
+			futureX += xOffset;
+		}
+		if(vx < 0){
+			futureX -= xOffset;
+		}
+		if(vy > 0){
+			futureY += yOffset;
+		}
+		else{
+			// As CarPhysics.move has it
+			futureY -= xOffset;
+		}
+		if(!blocked[tileAt(futureX, futureY)]){
+			x = x + vx * delta;
+			y = y + vy * delta;
+		}
+		else{
+			vx = 0;
+			vy = 0;
+			health -= 5 * delta;
+		}
+
+		// resetControls, leaving only the flags that last between steps
+		this.x[car] = x;
+		this.y[car] = y;
+		this.vx[car] = vx;
+		this.vy[car] = vy;
+		this.rotation[car] = rotation;
+		this.angle[car] = 0;
+		this.health[car] = health;
+		this.flags[car] = (backwards ? BACKWARDS : 0) | (wasReversing ? WAS_REVERSING : 0);
+		this.orientation[car] = (byte) orientation;
+		this.outcome[car] = (byte) outcome;
+	}
+
+	private static int finish(int outcome, Outcome result){
+		return outcome == RUNNING ? result.ordinal() : outcome;
+	}
+
+	/**
+	 * CarPhysics.snapTo for a car turning towards higher angles (turn 1) or lower ones
+	 * (turn -1), once reversing has been taken into account.
+	 * @return the new steering angle's bits in the low half, the new orientation in the
+	 * high half
+	 */
+	private static long snap(int turn, int orientation, float rotation, float angle){
+		float current = (rotation % 360 + 360) % 360;
+		float angleDifference;
+		int to;
+		if(turn > 0){
+			if(orientation == EAST){
+				angleDifference = WorldSpatial.NORTH_DEGREE - current;
+				to = NORTH;
+			}
+			else if(orientation == NORTH){
+				angleDifference = WorldSpatial.WEST_DEGREE - current;
+				to = WEST;
+			}
+			else if(orientation == SOUTH){
+				angleDifference = WorldSpatial.EAST_DEGREE_MAX - current;
+				to = EAST;
+			}
+			else{
+				angleDifference = WorldSpatial.SOUTH_DEGREE - current;
+				to = SOUTH;
+			}
+		}
+		else{
+			if(orientation == EAST){
+				angleDifference = current - WorldSpatial.SOUTH_DEGREE;
+				to = SOUTH;
+			}
+			else if(orientation == NORTH){
+				angleDifference = current;
+				to = EAST;
+			}
+			else if(orientation == SOUTH){
+				angleDifference = current - WorldSpatial.WEST_DEGREE;
+				to = WEST;
+			}
+			else{
+				angleDifference = current - WorldSpatial.NORTH_DEGREE;
+				to = NORTH;
+			}
+		}
+		if(angleDifference >= 0 && angleDifference < CarPhysics.SNAP_THRESHOLD){
+			angle = turn > 0 ? angleDifference : -angleDifference;
+			orientation = to;
+		}
+		return (long) orientation << 32 | (Float.floatToRawIntBits(angle) & 0xffffffffL);
+	}
+
+	// Vector2.len()
+	private static float length(float x, float y){
+		return (float) Math.sqrt(x * x + y * y);
+	}
+
+	// Vector2.angle()
+	private static float angleOf(float x, float y){
+		float angle = (float) Math.atan2(y, x) * MathUtils.radiansToDegrees;
+		if(angle < 0){
+			angle += 360;
+		}
+		return angle;
+	}
+
+	public float getX(int car){
+		return x[car];
+	}
+
+	public float getY(int car){
+		return y[car];
+	}
+
+	public float getVelocityX(int car){
+		return vx[car];
+	}
+
+	public float getVelocityY(int car){
+		return vy[car];
+	}
+
+	public float getSpeed(int car){
+		return length(vx[car], vy[car]);
+	}
+
+	public float getRotation(int car){
+		return rotation[car];
+	}
+
+	/**
+	 * The heading of the car in degrees, between 0 and 360
+	 */
+	public float getAngle(int car){
+		return (rotation[car] % 360 + 360) % 360;
+	}
+
+	public int getHealth(int car){
+		return health[car];
+	}
+
+	public WorldSpatial.Direction getOrientation(int car){
+		return DIRECTIONS[orientation[car]];
+	}
+
+	public Outcome getOutcome(int car){
+		return OUTCOMES[outcome[car]];
+	}
+
+	/**
+	 * How many cars have not finished yet.
+	 */
+	public int getRunning(){
+		int running = 0;
+		for(int car = 0; car < size; car++){
+			if(outcome[car] == RUNNING){
+				running++;
+			}
+		}
+		return running;
+	}
+
+	/**
+	 * The same hash of a car's state as Car.stateHash, so a car in a batch can be checked
+	 * against a Car driven the same way.
+	 */
+	public long stateHash(int car){
+		long hash = 0xcbf29ce484222325L;
+		hash = mix(hash, Float.floatToIntBits(x[car]));
+		hash = mix(hash, Float.floatToIntBits(y[car]));
+		hash = mix(hash, Float.floatToIntBits(vx[car]));
+		hash = mix(hash, Float.floatToIntBits(vy[car]));
+		hash = mix(hash, Float.floatToIntBits(rotation[car]));
+		hash = mix(hash, Float.floatToIntBits(angle[car]));
+		hash = mix(hash, health[car]);
+		hash = mix(hash, (flags[car] & BACKWARDS) != 0 ? CarPhysics.State.REVERSE.ordinal() : CarPhysics.State.FORWARD.ordinal());
+		hash = mix(hash, orientation[car]);
+		hash = mix(hash, (flags[car] & WAS_REVERSING) != 0 ? 1 : 0);
+		hash = mix(hash, outcome[car]);
+		return hash;
+	}
+
+	private static long mix(long hash, int value){
+		// FNV-1a, one int at a time
+		return (hash ^ value) * 0x100000001b3L;
+	}
+}
@@ -0,0 +1,81 @@
+package world;
+
+/**
+ * How a car handles: its top speeds and the forces acting on it, in tiles and seconds.
+ * Every car has its own, so a World can mix fast and slow cars; DEFAULT is the car the
+ * simulation has always had. Parameters are immutable, so one instance can be shared by
+ * any number of cars.
+ */
+public final class CarParameters {
+
+	public static final CarParameters DEFAULT = new CarParameters(5f, 2.5f, 2f, 2f, 0.5f, 150f);
+
+	private final float maxSpeed;
+	private final float maxReverseSpeed;
+	private final float acceleration;
+	private final float brakingForce;
+	private final float frictionForce;
+	private final float rotatingFactor;
+
+	/**
+	 * @param maxSpeed the fastest the car goes forwards, in tiles per second
+	 * @param maxReverseSpeed the fastest the car goes backwards, in tiles per second
+	 * @param acceleration the force of the engine
+	 * @param brakingForce the force of the brakes
+	 * @param frictionForce the force slowing the car down when it is not braking
+	 * @param rotatingFactor how fast the car turns, in degrees per second
+	 */
+	public CarParameters(float maxSpeed, float maxReverseSpeed, float acceleration, float brakingForce,
+			float frictionForce, float rotatingFactor){
+		if(maxSpeed <= 0 || maxReverseSpeed <= 0 || rotatingFactor <= 0){
+			throw new IllegalArgumentException("Speeds and turning rate have to be positive");
+		}
+		if(acceleration < 0 || brakingForce < 0 || frictionForce < 0){
+			throw new IllegalArgumentException("Forces cannot be negative");
+		}
+		this.maxSpeed = maxSpeed;
+		this.maxReverseSpeed = maxReverseSpeed;
+		this.acceleration = acceleration;
+		this.brakingForce = brakingForce;
+		this.frictionForce = frictionForce;
+		this.rotatingFactor = rotatingFactor;
+	}
+
+	public float getMaxSpeed(){
+		return maxSpeed;
+	}
+
+	public float getMaxReverseSpeed(){
+		return maxReverseSpeed;
+	}
+
+	public float getAcceleration(){
+		return acceleration;
+	}
+
+	public float getBrakingForce(){
+		return brakingForce;
+	}
+
+	public float getFrictionForce(){
+		return frictionForce;
+	}
+
+	public float getRotatingFactor(){
+		return rotatingFactor;
+	}
+
+	/**
+	 * The same car with a different top speed.
+	 */
+	public CarParameters withMaxSpeed(float maxSpeed){
+		return new CarParameters(maxSpeed, maxReverseSpeed, acceleration, brakingForce, frictionForce, rotatingFactor);
+	}
+
+	/**
+	 * The same car with a different engine.
+	 */
+	public CarParameters withAcceleration(float acceleration){
+		return new CarParameters(maxSpeed, maxReverseSpeed, acceleration, brakingForce, frictionForce, rotatingFactor);
+	}
+}
@@ -0,0 +1,449 @@
+package world;
+
+import com.badlogic.gdx.math.MathUtils;
+
+import tiles.TileKind;
+
+/**
+ * The car's motion model: steering, engine and friction forces, speed limits and wall
+ * collisions, on nothing but primitive state. Car steps its own instance every update
+ * and peek steps a scratch copy, so predictions follow exactly the same physics as the
+ * car itself, and neither allocates.
+ *
+ * The vector maths is written out by hand, but performs the same float operations in the
+ * same order as the libGDX Vector2 calls it replaces, so results are bit for bit what
+ * they were.
+ *
+ * CarBatch repeats this arithmetic, and that of Car.update, for many cars at once
+ * rather than calling it. Any change here has to be made there too, in the same order,
+ * and checked with the headless BatchCheck, which compares the two tick by tick.
+ *
+ */
+public class CarPhysics {
+
+	static final float STEERING_ADJUST_FACTOR = 0.05f;
+	static final float EPSILON = 0.01f;
+	static final float TURN_EPSILON = 0.05f;
+	static final float MAX_DEGREES = 360;
+	static final int SNAP_THRESHOLD = 5;
+
+	static enum State { FORWARD, REVERSE };
+
+	private final WorldMap map;
+	private final CarParameters parameters;
+	// Copied out of parameters, as they are read every step
+	private final float maxSpeed;
+	private final float maxReverseSpeed;
+	private final float rotatingFactor;
+	private final float brakingForce;
+	private final float acceleration;
+	private final float friction;
+	private final double xOffset;
+	private final double yOffset;
+
+	private float x;
+	private float y;
+	private float vx;
+	private float vy;
+	private float angle = 0;
+	private float rotation = 0;
+	private boolean reversing = false;
+	private boolean accelerating = false;
+	private boolean handBrake = false;
+	private boolean wasReversing = false;
+	private State carDirection = State.FORWARD;
+	private WorldSpatial.Direction orientation = WorldSpatial.Direction.EAST;
+
+	/**
+	 * @param map the map to collide with
+	 * @param carWidth the width of the car sprite in pixels
+	 * @param carHeight the height of the car sprite in pixels
+	 */
+	public CarPhysics(WorldMap map, int carWidth, int carHeight){
+		this(map, carWidth, carHeight, CarParameters.DEFAULT);
+	}
+
+	/**
+	 * @param parameters how the car handles
+	 */
+	public CarPhysics(WorldMap map, int carWidth, int carHeight, CarParameters parameters){
+		this.map = map;
+		this.parameters = parameters;
+		this.maxSpeed = parameters.getMaxSpeed();
+		this.maxReverseSpeed = parameters.getMaxReverseSpeed();
+		this.rotatingFactor = parameters.getRotatingFactor();
+		this.brakingForce = parameters.getBrakingForce();
+		this.acceleration = parameters.getAcceleration();
+		this.friction = parameters.getFrictionForce();
+		this.xOffset = ((carWidth / 2)*1.0/World.MAP_PIXEL_SIZE);
+		this.yOffset = ((carHeight / 2)*1.0/World.MAP_PIXEL_SIZE);
+	}
+
+	/**
+	 * Copies the whole motion state of another car on the same map, but not how it
+	 * handles, which is fixed when a model is made.
+	 */
+	public void copyFrom(CarPhysics other){
+		x = other.x;
+		y = other.y;
+		vx = other.vx;
+		vy = other.vy;
+		angle = other.angle;
+		rotation = other.rotation;
+		reversing = other.reversing;
+		accelerating = other.accelerating;
+		handBrake = other.handBrake;
+		wasReversing = other.wasReversing;
+		carDirection = other.carDirection;
+		orientation = other.orientation;
+	}
+
+	/**
+	 * Advances the car by one tick with the controls applied since the last step, then
+	 * releases the controls. Traps should already have been applied for this tick.
+	 * @return false if the car would have run into a wall or off the map, in which case
+	 * it stops where it is
+	 */
+	public boolean step(float delta){
+		// First calculate the force created by the engine, that is either accelerating or reversing
+		float drivingForce = 0;
+		if(accelerating || reversing){
+			drivingForce = acceleration;
+		}
+
+		// Calculate the braking force, if not braking apply a small amount of friction so we slow down over
+		// time, given this is negligible compared to braking we do one or, not both
+		float frictionForce = 0;
+		if(handBrake){
+			frictionForce = brakingForce;
+		} else if (getSpeed() > 0){
+			frictionForce = friction;
+		}
+
+		applySteering();
+		applyAcceleration(drivingForce, frictionForce, delta);
+		boolean moved = move(delta);
+		resetControls();
+		return moved;
+	}
+
+	public void applyForwardAcceleration(){
+		accelerating = true;
+	}
+
+	public void applyReverseAcceleration(){
+		reversing = true;
+		wasReversing = true;
+	}
+
+	public void brake(){
+		handBrake = true;
+	}
+
+	/** Snap to an orientation if you get close to it! **/
+	public void turnLeft(float delta){
+		angle += rotatingFactor * delta;
+		if(reversing){
+			angle *= -1;
+		}
+		snapTo(reversing, orientation, WorldSpatial.RelativeDirection.LEFT);
+	}
+
+	public void turnRight(float delta){
+		angle -= rotatingFactor * delta;
+		if(reversing){
+			angle *= -1;
+		}
+		snapTo(reversing, orientation, WorldSpatial.RelativeDirection.RIGHT);
+	}
+
+	private void snapTo(boolean reversing, WorldSpatial.Direction currentOrientation, WorldSpatial.RelativeDirection turnDirection) {
+		float angleDifference = SNAP_THRESHOLD;
+		if((!reversing && turnDirection.equals(WorldSpatial.RelativeDirection.LEFT)) || (reversing && turnDirection.equals(WorldSpatial.RelativeDirection.RIGHT))){
+
+			switch(currentOrientation){
+			case EAST:
+				angleDifference = WorldSpatial.NORTH_DEGREE - getAngle();
+				if(angleDifference >= 0 && angleDifference < SNAP_THRESHOLD){
+					angle = angleDifference;
+					this.orientation = WorldSpatial.Direction.NORTH;
+				}
+				break;
+			case NORTH:
+				angleDifference = WorldSpatial.WEST_DEGREE - getAngle();
+				if(angleDifference >= 0 && angleDifference < SNAP_THRESHOLD){
+					angle = angleDifference;
+					this.orientation = WorldSpatial.Direction.WEST;
+				}
+				break;
+			case SOUTH:
+				angleDifference = WorldSpatial.EAST_DEGREE_MAX - getAngle();
+				if(angleDifference >= 0 && angleDifference < SNAP_THRESHOLD){
+					angle = angleDifference;
+					this.orientation = WorldSpatial.Direction.EAST;
+				}
+				break;
+			case WEST:
+				angleDifference = WorldSpatial.SOUTH_DEGREE - getAngle();
+				if(angleDifference >= 0 && angleDifference < SNAP_THRESHOLD){
+					angle = angleDifference;
+					this.orientation = WorldSpatial.Direction.SOUTH;
+				}
+				break;
+			default:
+				break;
+
+			}
+
+		}
+		else if((!reversing && turnDirection.equals(WorldSpatial.RelativeDirection.RIGHT)) || (reversing && turnDirection.equals(WorldSpatial.RelativeDirection.LEFT))){
+			switch(currentOrientation){
+			case EAST:
+				angleDifference = getAngle() - WorldSpatial.SOUTH_DEGREE;
+				if(angleDifference >= 0 && angleDifference < SNAP_THRESHOLD){
+					angle = -angleDifference;
+					this.orientation = WorldSpatial.Direction.SOUTH;
+				}
+				break;
+			case NORTH:
+				angleDifference = getAngle();
+				if(angleDifference >= 0 && angleDifference < SNAP_THRESHOLD){
+					angle = -angleDifference;
+					this.orientation = WorldSpatial.Direction.EAST;
+				}
+				break;
+			case SOUTH:
+				angleDifference = getAngle() - WorldSpatial.WEST_DEGREE;
+				if(angleDifference >= 0 && angleDifference < SNAP_THRESHOLD){
+					angle = -angleDifference;
+					this.orientation = WorldSpatial.Direction.WEST;
+				}
+				break;
+			case WEST:
+				angleDifference = getAngle() - WorldSpatial.NORTH_DEGREE;
+				if(angleDifference >= 0 && angleDifference < SNAP_THRESHOLD){
+					angle = -angleDifference;
+					this.orientation = WorldSpatial.Direction.NORTH;
+				}
+				break;
+			default:
+				break;
+
+			}
+		}
+
+	}
+
+	private void applySteering(){
+		if(getSpeed() > TURN_EPSILON && !handBrake && map.lookUp(x, y).getKind() != TileKind.GRASS) {
+
+			rotation += angle;
+
+			if(angle > TURN_EPSILON || angle < TURN_EPSILON ){
+				// Slowly update turnings
+				int sign = angle > 0 ? 1 : -1;
+				float magnitude = Math.abs(angle) - Math.abs(angle)*STEERING_ADJUST_FACTOR;
+				angle = magnitude * sign;
+			} else {
+				angle = 0;
+			}
+		}
+	}
+
+	private void applyAcceleration(float drivingForce, float frictionForce, float delta){
+		// Engine force along the car, Vector2(1,0).rotate(rotation).scl(drivingForce)
+		float radians = rotation * MathUtils.degreesToRadians;
+		float cos = (float) Math.cos(radians);
+		float sin = (float) Math.sin(radians);
+		float accelerationX = (1 * cos - 0 * sin) * drivingForce;
+		float accelerationY = (1 * sin + 0 * cos) * drivingForce;
+
+		// Friction opposing the engine, or opposing the way we face if the engine is off
+		float frictionAngle;
+		if(length(accelerationX, accelerationY) > 0){
+			frictionAngle = angleOf(accelerationX, accelerationY) - MAX_DEGREES/2;
+		} else {
+			frictionAngle = (rotation - MAX_DEGREES/2) % MAX_DEGREES;
+		}
+		radians = frictionAngle * MathUtils.degreesToRadians;
+		cos = (float) Math.cos(radians);
+		sin = (float) Math.sin(radians);
+		float netX = accelerationX + (1 * cos - 0 * sin) * frictionForce;
+		float netY = accelerationY + (1 * sin + 0 * cos) * frictionForce;
+
+		// Point the velocity the way the car faces, velocity.setAngle(rotation)
+		float speed = getSpeed();
+		radians = rotation * MathUtils.degreesToRadians;
+		cos = (float) Math.cos(radians);
+		sin = (float) Math.sin(radians);
+		vx = speed * cos - 0 * sin;
+		vy = speed * sin + 0 * cos;
+
+		if((carDirection.equals(State.REVERSE) && accelerating) || (carDirection.equals(State.FORWARD) && reversing)){
+			vx -= netX * delta;
+			vy -= netY * delta;
+		}
+		else{
+			vx += netX * delta;
+			vy += netY * delta;
+		}
+
+		if(getSpeed() > maxSpeed && !reversing) {
+			float scalar = getSpeed() / maxSpeed;
+			scaleVelocity(1/scalar);
+		}
+		else if(getSpeed() > maxReverseSpeed && reversing){
+			float scalar = getSpeed() / maxReverseSpeed;
+			scaleVelocity(1/scalar);
+		}
+		else if (getSpeed() < EPSILON){
+			vx = 0;
+			vy = 0;
+			if(carDirection.equals(State.FORWARD)){
+				carDirection = State.REVERSE;
+			}
+			else{
+				carDirection = State.FORWARD;
+			}
+			if(wasReversing){
+				wasReversing = false;
+			}
+		}
+		if(carDirection.equals(State.REVERSE)){
+			// velocity.rotate(180)
+			radians = 180 * MathUtils.degreesToRadians;
+			cos = (float) Math.cos(radians);
+			sin = (float) Math.sin(radians);
+			float rotatedX = vx * cos - vy * sin;
+			float rotatedY = vx * sin + vy * cos;
+			vx = rotatedX;
+			vy = rotatedY;
+		}
+	}
+
+	private boolean move(float delta){
+		double futureX = x + vx * delta;
+		double futureY = y + vy * delta;
+		if(vx > 0){
+			futureX += xOffset;
+		}
+		if(vx < 0){
+			futureX -= xOffset;
+		}
+
+		if(vy > 0){
+			futureY += yOffset;
+		}
+		else{
+			futureY -= xOffset;
+		}
+
+		if(!map.lookUp(futureX, futureY).isBlocked()){
+			x = x + vx * delta;
+			y = y + vy * delta;
+			return true;
+		}
+		else{
+			vx = 0;
+			vy = 0;
+			return false;
+		}
+	}
+
+	private void resetControls(){
+		angle = 0;
+		reversing = false;
+		accelerating = false;
+		handBrake = false;
+	}
+
+	private void scaleVelocity(float scalar){
+		vx *= scalar;
+		vy *= scalar;
+	}
+
+	// Vector2.len()
+	private static float length(float x, float y){
+		return (float) Math.sqrt(x * x + y * y);
+	}
+
+	// Vector2.angle()
+	private static float angleOf(float x, float y){
+		float angle = (float) Math.atan2(y, x) * MathUtils.radiansToDegrees;
+		if(angle < 0){
+			angle += 360;
+		}
+		return angle;
+	}
+
+	public void setPosition(float x, float y){
+		this.x = x;
+		this.y = y;
+	}
+
+	public void setVelocity(float x, float y){
+		this.vx = x;
+		this.vy = y;
+	}
+
+	public float getX(){
+		return x;
+	}
+
+	public float getY(){
+		return y;
+	}
+
+	public float getVelocityX(){
+		return vx;
+	}
+
+	public float getVelocityY(){
+		return vy;
+	}
+
+	public float getSpeed(){
+		return length(vx, vy);
+	}
+
+	/**
+	 * The heading of the car in degrees, unbounded as it keeps turning
+	 */
+	public float getRotation(){
+		return rotation;
+	}
+
+	/**
+	 * The heading of the car in degrees, between 0 and 360
+	 */
+	public float getAngle(){
+		return (rotation % 360 + 360) % 360;
+	}
+
+	/**
+	 * The steering applied this tick, in degrees
+	 */
+	public float getSteeringAngle(){
+		return angle;
+	}
+
+	public boolean isReversing(){
+		return reversing;
+	}
+
+	public boolean wasReversing(){
+		return wasReversing;
+	}
+
+	State getDirection(){
+		return carDirection;
+	}
+
+	public WorldSpatial.Direction getOrientation(){
+		return orientation;
+	}
+
+	public CarParameters getParameters(){
+		return parameters;
+	}
+}
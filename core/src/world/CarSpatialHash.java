@@ -0,0 +1,163 @@
+package world;
+
+import java.util.Arrays;
+
+/**
+ * Which cars of a World are near each other, so that cars only have to be checked for
+ * running into the few others around them rather than every other car.
+ *
+ * The map is split into square cells at least as wide as the widest car, and each cell
+ * hashed to one of a fixed number of buckets, each a linked list of the cars in it kept
+ * in arrays by car number. Two cars can only touch if they are in the same or
+ * neighbouring cells. Updating a car that has not left its cell does nothing, so with
+ * cars moving a fraction of a tile a tick the grid is rebuilt a few cars at a time
+ * rather than every tick.
+ */
+class CarSpatialHash {
+
+	private static final int NONE = -1;
+
+	private final int mask;
+	private final int[] heads;
+	private float cellSize = 0;
+
+	// By car number
+	private int[] next = new int[0];
+	private int[] previous = new int[0];
+	private int[] bucket = new int[0];
+	private float[] xs = new float[0];
+	private float[] ys = new float[0];
+	private float[] radii = new float[0];
+
+	// The buckets already searched in near, as there can be fewer than nine
+	private final int[] searched = new int[9];
+
+	/**
+	 * @param buckets how many buckets to hash cells to, rounded up to a power of two
+	 */
+	CarSpatialHash(int buckets){
+		int size = Integer.highestOneBit(Math.max(buckets, 1) - 1) << 1;
+		heads = new int[Math.max(size, 1)];
+		mask = heads.length - 1;
+		Arrays.fill(heads, NONE);
+	}
+
+	/**
+	 * Makes room for car number car, which reaches radius tiles from its centre. It is
+	 * not in any cell until it is first updated.
+	 */
+	void add(int car, float radius){
+		if(car >= bucket.length){
+			int length = Math.max(car + 1, bucket.length * 2);
+			int from = bucket.length;
+			next = Arrays.copyOf(next, length);
+			previous = Arrays.copyOf(previous, length);
+			bucket = Arrays.copyOf(bucket, length);
+			xs = Arrays.copyOf(xs, length);
+			ys = Arrays.copyOf(ys, length);
+			radii = Arrays.copyOf(radii, length);
+			Arrays.fill(bucket, from, length, NONE);
+		}
+		radii[car] = radius;
+		if(radius * 2 > cellSize){
+			// Every car has to be rehashed with the wider cells
+			cellSize = radius * 2;
+			Arrays.fill(heads, NONE);
+			Arrays.fill(bucket, NONE);
+		}
+	}
+
+	/**
+	 * Moves a car to (x, y), relinking it only if that is in a different bucket.
+	 */
+	void update(int car, float x, float y){
+		xs[car] = x;
+		ys[car] = y;
+		int to = hash(cell(x), cell(y));
+		if(bucket[car] == to){
+			return;
+		}
+		remove(car);
+		bucket[car] = to;
+		previous[car] = NONE;
+		next[car] = heads[to];
+		if(heads[to] != NONE){
+			previous[heads[to]] = car;
+		}
+		heads[to] = car;
+	}
+
+	/**
+	 * Takes a car out of the grid, until it is next updated.
+	 */
+	void remove(int car){
+		int from = bucket[car];
+		if(from == NONE){
+			return;
+		}
+		if(previous[car] != NONE){
+			next[previous[car]] = next[car];
+		}
+		else{
+			heads[from] = next[car];
+		}
+		if(next[car] != NONE){
+			previous[next[car]] = previous[car];
+		}
+		bucket[car] = NONE;
+	}
+
+	/**
+	 * Puts the numbers of the cars touching car, numbered higher than it, into found, so
+	 * that going through every car finds each touching pair once.
+	 * @return how many were put in, at most found.length
+	 */
+	int touching(int car, int[] found){
+		if(bucket[car] == NONE){
+			return 0;
+		}
+		int cellX = cell(xs[car]);
+		int cellY = cell(ys[car]);
+		int buckets = 0;
+		int count = 0;
+		for(int dy = -1; dy <= 1; dy++){
+			for(int dx = -1; dx <= 1; dx++){
+				int b = hash(cellX + dx, cellY + dy);
+				if(contains(searched, buckets, b)){
+					continue;
+				}
+				searched[buckets++] = b;
+				for(int other = heads[b]; other != NONE && count < found.length; other = next[other]){
+					if(other > car && touches(car, other)){
+						found[count++] = other;
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	private boolean touches(int a, int b){
+		float dx = xs[b] - xs[a];
+		float dy = ys[b] - ys[a];
+		float reach = radii[a] + radii[b];
+		return dx * dx + dy * dy < reach * reach;
+	}
+
+	private static boolean contains(int[] values, int count, int value){
+		for(int i = 0; i < count; i++){
+			if(values[i] == value){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private int cell(float position){
+		return (int) Math.floor(position / cellSize);
+	}
+
+	private int hash(int cellX, int cellY){
+		return (cellX * 73856093 ^ cellY * 19349663) & mask;
+	}
+}
@@ -0,0 +1,240 @@
+package world;
+
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import tiles.TileKind;
+
+/**
+ * Distances precomputed for every tile of a map when it is loaded, so that controllers can
+ * ask how far away walls and traps are without scanning the tiles around them:
+ *  - the distance to the nearest wall, exit, and trap of each kind, counted in steps
+ *    north, south, east or west and ignoring anything in between;
+ *  - the free run along each Direction, that is how many tiles there are before the next
+ *    wall, and likewise how many before the next trap.
+ *
+ * Free runs look only at walls, so Empty tiles do not stop them. A distance or run with
+ * no wall or trap at the end of it, including any asked for off the map, is NONE.
+ *
+ * The fields are built once per WorldMap and never change, so they are safe to share
+ * between worlds on different threads. On large maps, rows and then columns are
+ * computed in parallel.
+ */
+public class DistanceFields {
+
+	/** There is no such tile in that direction, or on the map at all */
+	public static final int NONE = Integer.MAX_VALUE;
+
+	// Maps with fewer tiles than this are faster to do on one thread
+	private static final int PARALLEL_THRESHOLD = 128 * 128;
+	private static final int DIRECTIONS = WorldSpatial.Direction.values().length;
+
+	private final int width;
+	private final int height;
+	private final boolean parallel;
+
+	private final int[] wallDistance;
+	private final int[] exitDistance;
+	private final int[][] trapDistance = new int[TileKind.values().length][];
+	private final int[][] wallRun = new int[DIRECTIONS][];
+	private final int[][] trapRun = new int[DIRECTIONS][];
+
+	public DistanceFields(TileGrid grid){
+		this.width = grid.getWidth();
+		this.height = grid.getHeight();
+		this.parallel = width * height >= PARALLEL_THRESHOLD;
+
+		// What each palette entry is, so the passes below never touch a MapTile
+		int paletteSize = grid.getPaletteSize();
+		TileKind[] kinds = new TileKind[paletteSize];
+		for(int i = 0; i < paletteSize; i++){
+			kinds[i] = grid.getTile(i).getKind();
+		}
+		final TileKind[] cells = new TileKind[width * height];
+		forEach(height, new IntConsumer(){
+			@Override
+			public void accept(int y){
+				for(int x = 0; x < width; x++){
+					cells[index(x, y)] = kinds[grid.tileIndex(x, y)];
+				}
+			}
+		});
+
+		boolean[] walls = mark(cells, TileKind.WALL);
+		boolean[] traps = new boolean[cells.length];
+		wallDistance = distanceTo(walls);
+		exitDistance = distanceTo(mark(cells, TileKind.EXIT));
+		for(TileKind kind : TileKind.values()){
+			if(kind.isTrap()){
+				boolean[] trapsOfKind = mark(cells, kind);
+				trapDistance[kind.ordinal()] = distanceTo(trapsOfKind);
+				for(int i = 0; i < cells.length; i++){
+					traps[i] |= trapsOfKind[i];
+				}
+			}
+		}
+		for(WorldSpatial.Direction direction : WorldSpatial.Direction.values()){
+			wallRun[direction.ordinal()] = runTo(walls, direction);
+			trapRun[direction.ordinal()] = runTo(traps, direction);
+		}
+	}
+
+	/**
+	 * Steps to the nearest wall, 0 if (x, y) is a wall.
+	 */
+	public int getWallDistance(int x, int y){
+		return contains(x, y) ? wallDistance[index(x, y)] : NONE;
+	}
+
+	/**
+	 * Steps to the nearest exit, 0 if (x, y) is one. Never more than the length of any
+	 * route to an exit, which makes it a good estimate for route planning.
+	 */
+	public int getExitDistance(int x, int y){
+		return contains(x, y) ? exitDistance[index(x, y)] : NONE;
+	}
+
+	/**
+	 * Steps to the nearest trap of the given kind, 0 if (x, y) is one.
+	 */
+	public int getTrapDistance(int x, int y, TileKind kind){
+		int[] distance = trapDistance[kind.ordinal()];
+		if(distance == null){
+			throw new IllegalArgumentException(kind + " is not a kind of trap");
+		}
+		return contains(x, y) ? distance[index(x, y)] : NONE;
+	}
+
+	/**
+	 * Steps to the nearest trap of any kind, 0 if (x, y) is one.
+	 */
+	public int getTrapDistance(int x, int y){
+		if(!contains(x, y)){
+			return NONE;
+		}
+		int nearest = NONE;
+		for(int[] distance : trapDistance){
+			if(distance != null){
+				nearest = Math.min(nearest, distance[index(x, y)]);
+			}
+		}
+		return nearest;
+	}
+
+	/**
+	 * How many tiles there are after (x, y) in a direction before the next wall, NONE if the
+	 * map ends first. The wall is at getFreeRun + 1 tiles away.
+	 */
+	public int getFreeRun(int x, int y, WorldSpatial.Direction direction){
+		return contains(x, y) ? wallRun[direction.ordinal()][index(x, y)] : NONE;
+	}
+
+	/**
+	 * How many tiles there are after (x, y) in a direction before the next trap of any kind,
+	 * NONE if the map ends first. The trap is at getTrapRun + 1 tiles away.
+	 */
+	public int getTrapRun(int x, int y, WorldSpatial.Direction direction){
+		return contains(x, y) ? trapRun[direction.ordinal()][index(x, y)] : NONE;
+	}
+
+	private boolean[] mark(TileKind[] cells, TileKind kind){
+		boolean[] marked = new boolean[cells.length];
+		for(int i = 0; i < cells.length; i++){
+			marked[i] = cells[i] == kind;
+		}
+		return marked;
+	}
+
+	/**
+	 * Exact city block distance transform: first along each row, then down each column
+	 * taking the best of the row distances. Each row, then each column, is independent.
+	 */
+	private int[] distanceTo(final boolean[] sources){
+		final int[] distance = new int[sources.length];
+		// Large enough to mean unreachable, small enough not to overflow when added to
+		final int far = width + height;
+
+		forEach(height, new IntConsumer(){
+			@Override
+			public void accept(int y){
+				int d = far;
+				for(int x = 0; x < width; x++){
+					d = sources[index(x, y)] ? 0 : Math.min(d + 1, far);
+					distance[index(x, y)] = d;
+				}
+				d = far;
+				for(int x = width - 1; x >= 0; x--){
+					d = sources[index(x, y)] ? 0 : Math.min(d + 1, far);
+					distance[index(x, y)] = Math.min(distance[index(x, y)], d);
+				}
+			}
+		});
+		forEach(width, new IntConsumer(){
+			@Override
+			public void accept(int x){
+				for(int y = 1; y < height; y++){
+					distance[index(x, y)] = Math.min(distance[index(x, y)], distance[index(x, y - 1)] + 1);
+				}
+				for(int y = height - 2; y >= 0; y--){
+					distance[index(x, y)] = Math.min(distance[index(x, y)], distance[index(x, y + 1)] + 1);
+				}
+				for(int y = 0; y < height; y++){
+					if(distance[index(x, y)] >= far){
+						distance[index(x, y)] = NONE;
+					}
+				}
+			}
+		});
+		return distance;
+	}
+
+	/**
+	 * Counts back from the far end of every row or column, so each tile's run is one more
+	 * than the run of the tile after it.
+	 */
+	private int[] runTo(final boolean[] stops, final WorldSpatial.Direction direction){
+		final int[] run = new int[stops.length];
+		final boolean alongRows = direction == WorldSpatial.Direction.EAST || direction == WorldSpatial.Direction.WEST;
+		final int dx = direction == WorldSpatial.Direction.EAST ? 1 : direction == WorldSpatial.Direction.WEST ? -1 : 0;
+		final int dy = direction == WorldSpatial.Direction.NORTH ? 1 : direction == WorldSpatial.Direction.SOUTH ? -1 : 0;
+		final int length = alongRows ? width : height;
+
+		forEach(alongRows ? height : width, new IntConsumer(){
+			@Override
+			public void accept(int line){
+				// Walk against the direction, starting at the last tile before the edge
+				int x = alongRows ? (dx > 0 ? width - 1 : 0) : line;
+				int y = alongRows ? line : (dy > 0 ? height - 1 : 0);
+				int next = NONE;
+				for(int i = 0; i < length; i++){
+					run[index(x, y)] = next;
+					if(stops[index(x, y)]){
+						next = 0;
+					}
+					else if(next != NONE){
+						next++;
+					}
+					x -= dx;
+					y -= dy;
+				}
+			}
+		});
+		return run;
+	}
+
+	private void forEach(int count, IntConsumer action){
+		IntStream lines = IntStream.range(0, count);
+		if(parallel){
+			lines = lines.parallel();
+		}
+		lines.forEach(action);
+	}
+
+	private boolean contains(int x, int y){
+		return x >= 0 && y >= 0 && x < width && y < height;
+	}
+
+	private int index(int x, int y){
+		return y * width + x;
+	}
+}
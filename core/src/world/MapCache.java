@@ -0,0 +1,279 @@
+package world;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TmxMapLoader;
+
+import tiles.MapTile;
+import tiles.TileKind;
+import tiles.TrapParameters;
+import tiles.TrapRegistry;
+import tiles.TrapTile;
+import tiles.UtilityTile;
+
+/**
+ * Loads WorldMaps from a compact binary copy kept next to each .tmx file, so that runs
+ * which load the same map over and over skip parsing the XML and walking its layers.
+ *
+ * The copy is named after the map with CACHE_SUFFIX added, and holds the SHA-256 of the
+ * .tmx it was made from: it is only used while that still matches, and is written again
+ * whenever the map is loaded without it. Maps that do not live in a plain file, for
+ * example inside a jar, are always parsed. Maps made in code, such as generated mazes,
+ * can be saved to and opened from any file instead.
+ *
+ * The file is memory mapped and its tiles are paged in a chunk at a time as the map is
+ * looked at (see TileGrid), so only the chunks around the cars take up heap however big
+ * the map is.
+ *
+ * Layout, big endian: MAGIC, VERSION, the hash, width, height, whether there is a start
+ * and its x and y, the palette size, then for every palette entry after Empty its
+ * TileKind and, for traps, the name of their TrapType, how many settings they have and the
+ * name and value of each, and last every TileGrid chunk in turn, row by row of chunks,
+ * each one CHUNK_SIZE rows of CHUNK_SIZE cells. Strings are a short length then UTF-8.
+ */
+public class MapCache {
+
+	private static Logger logger = LogManager.getLogger();
+
+	public static final String CACHE_SUFFIX = ".cache";
+	/** How many chunks of a map loaded from a cache are kept in memory at once */
+	public static final int RESIDENT_CHUNKS = 256;
+
+	private static final int MAGIC = 0x4D415043; // "MAPC"
+	private static final int VERSION = 3;
+	private static final int HASH_BYTES = 32;
+	private static final TileKind[] KINDS = TileKind.values();
+
+	private MapCache(){
+	}
+
+	/**
+	 * The map named mapName, from its cache if it is up to date.
+	 */
+	public static WorldMap load(String mapName){
+		return load(mapName, null);
+	}
+
+	/**
+	 * The map named mapName, from its cache if it is up to date.
+	 * @param tiledMap the map already parsed by the caller, kept for drawing and used to
+	 * 		build the WorldMap without parsing again if there is no cache; null if there is none
+	 */
+	public static WorldMap load(String mapName, TiledMap tiledMap){
+		FileHandle tmx = Gdx.files.internal(mapName);
+		File tmxFile = tmx.file();
+		if(!tmxFile.isFile()){
+			return new WorldMap(tiledMap != null ? tiledMap : new TmxMapLoader().load(mapName));
+		}
+
+		byte[] hash = hash(tmx.readBytes());
+		Path cachePath = new File(tmxFile.getPath() + CACHE_SUFFIX).toPath();
+		if(Files.isRegularFile(cachePath)){
+			try {
+				WorldMap map = read(cachePath, hash, tiledMap);
+				if(map != null){
+					return map;
+				}
+			} catch (IOException | RuntimeException e) {
+				logger.warn("Ignoring unreadable map cache {}: {}", cachePath, e);
+			}
+		}
+
+		WorldMap map = new WorldMap(tiledMap != null ? tiledMap : new TmxMapLoader().load(mapName));
+		try {
+			write(cachePath, hash, map);
+		} catch (IOException e) {
+			logger.warn("Could not write map cache {}: {}", cachePath, e);
+		}
+		return map;
+	}
+
+	/**
+	 * A map saved with save, whatever it was made from.
+	 */
+	public static WorldMap open(Path path) throws IOException {
+		WorldMap map = read(path, null, null);
+		if(map == null){
+			throw new IOException(path + " is not a map cache");
+		}
+		return map;
+	}
+
+	/**
+	 * Saves a map so that it can be opened again without what it was made from.
+	 */
+	public static void save(Path path, WorldMap map) throws IOException {
+		write(path, new byte[HASH_BYTES], map);
+	}
+
+	/**
+	 * The map stored at path, null if it was made from a different version of the map.
+	 * @param expectedHash the hash of the map it should have been made from, null for any
+	 */
+	private static WorldMap read(Path path, byte[] expectedHash, TiledMap tiledMap) throws IOException {
+		MappedByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			// The mapping stays valid after the channel is closed
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		if(buffer.getInt() != MAGIC || buffer.getInt() != VERSION){
+			return null;
+		}
+		byte[] hash = new byte[HASH_BYTES];
+		buffer.get(hash);
+		if(expectedHash != null && !Arrays.equals(hash, expectedHash)){
+			return null;
+		}
+
+		int width = buffer.getInt();
+		int height = buffer.getInt();
+		boolean hasStart = buffer.get() != 0;
+		int startX = buffer.getInt();
+		int startY = buffer.getInt();
+		int paletteSize = buffer.getInt();
+		MapTile[] palette = new MapTile[paletteSize];
+		for(int i = 1; i < paletteSize; i++){
+			TileKind kind = KINDS[buffer.get()];
+			if(!kind.isTrap()){
+				palette[i] = tileOf(kind);
+				continue;
+			}
+			String type = readString(buffer);
+			HashMap<String,String> settings = new HashMap<String,String>();
+			for(int settingCount = buffer.getShort(); settingCount > 0; settingCount--){
+				String name = readString(buffer);
+				settings.put(name, readString(buffer));
+			}
+			palette[i] = TrapRegistry.get(type, TrapParameters.of(settings));
+		}
+
+		final ByteBuffer cells = buffer.slice();
+		TileGrid grid = new TileGrid(width, height, new TileGrid.ChunkSource(){
+			@Override
+			public void read(int chunk, int[] into){
+				// Absolute reads only, so chunks can be paged in from several threads
+				int offset = chunk * TileGrid.CHUNK_CELLS * 4;
+				for(int i = 0; i < TileGrid.CHUNK_CELLS; i++){
+					into[i] = cells.getInt(offset + i * 4);
+				}
+			}
+		}, RESIDENT_CHUNKS);
+		for(int i = 1; i < paletteSize; i++){
+			grid.addTile(palette[i]);
+		}
+		if(cells.capacity() != grid.getChunkCount() * TileGrid.CHUNK_CELLS * 4){
+			throw new IOException("Expected " + grid.getChunkCount() + " chunks");
+		}
+		return new WorldMap(tiledMap, grid, hasStart, startX, startY);
+	}
+
+	private static MapTile tileOf(TileKind kind){
+		switch(kind){
+		case ROAD:
+			return MapTile.ROAD;
+		case WALL:
+			return MapTile.WALL;
+		case START:
+			return UtilityTile.START;
+		case EXIT:
+			return UtilityTile.EXIT;
+		default:
+			throw new IllegalArgumentException("No shared tile of kind " + kind);
+		}
+	}
+
+	private static String readString(ByteBuffer buffer){
+		byte[] bytes = new byte[buffer.getShort()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeString(DataOutputStream out, String string) throws IOException {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		out.writeShort(bytes.length);
+		out.write(bytes);
+	}
+
+	private static void write(Path path, byte[] hash, WorldMap map) throws IOException {
+		// Written to the side and moved into place, so that a run loading the map at the
+		// same time never sees half a file
+		Path temporary = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+				write(out, hash, map);
+			}
+			Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temporary);
+		}
+	}
+
+	private static void write(DataOutputStream out, byte[] hash, WorldMap map) throws IOException {
+		TileGrid grid = map.getTileGrid();
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.write(hash);
+		out.writeInt(grid.getWidth());
+		out.writeInt(grid.getHeight());
+		out.writeByte(map.hasStart() ? 1 : 0);
+		out.writeInt(map.getStartX());
+		out.writeInt(map.getStartY());
+		out.writeInt(grid.getPaletteSize());
+		for(int i = 1; i < grid.getPaletteSize(); i++){
+			MapTile tile = grid.getTile(i);
+			if(!tile.isTrap() && tile != MapTile.ROAD && tile != MapTile.WALL && tile != UtilityTile.START && tile != UtilityTile.EXIT){
+				throw new IOException("Cannot store a " + tile.getClass().getName() + " tile");
+			}
+			out.writeByte(tile.getKind().ordinal());
+			if(tile.isTrap()){
+				TrapTile trap = (TrapTile) tile;
+				writeString(out, trap.getType());
+				out.writeShort(trap.getParameters().asMap().size());
+				for(Map.Entry<String,String> setting : trap.getParameters().asMap().entrySet()){
+					writeString(out, setting.getKey());
+					writeString(out, setting.getValue());
+				}
+			}
+		}
+		// A chunk at a time, so that saving a map never needs all of it in memory
+		int[] chunk = new int[TileGrid.CHUNK_CELLS];
+		ByteBuffer cells = ByteBuffer.allocate(chunk.length * 4);
+		for(int i = 0; i < grid.getChunkCount(); i++){
+			grid.readChunk(i, chunk);
+			cells.clear();
+			cells.asIntBuffer().put(chunk);
+			out.write(cells.array());
+		}
+	}
+
+	private static byte[] hash(byte[] content){
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(content);
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform is required to have SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,15 @@
+package world;
+
+/**
+ * How an escape attempt ended. A car stays RUNNING until it either reaches an
+ * exit or fails; TIMED_OUT and ERROR are only ever assigned by runners, when an
+ * attempt runs out of simulated time or its controller throws.
+ *
+ */
+public enum Outcome {
+	RUNNING, ESCAPED, NO_HEALTH, STUCK_IN_MUD, TIMED_OUT, ERROR;
+
+	public boolean isFinished(){
+		return this != RUNNING;
+	}
+}
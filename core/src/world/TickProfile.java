@@ -0,0 +1,119 @@
+package world;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+
+import utilities.LatencyHistogram;
+
+/**
+ * How long each phase of a World's ticks has taken, in a LatencyHistogram per phase.
+ * Every World keeps one, which costs two extra clock reads and a few increments a tick,
+ * so it is always on.
+ *
+ * Runs add their World's profile to the totals kept for its controller class when they
+ * finish, and the totals can be printed at any point, for example at the end of a
+ * Tournament.
+ */
+public class TickProfile {
+
+	public enum Phase {
+		/** The controller's update */
+		CONTROLLER,
+		/** The car's update, moving it and applying the tile it is on */
+		CAR,
+		/** Drawing a frame, only recorded when there is a window */
+		RENDER
+	};
+
+	private static final Phase[] PHASES = Phase.values();
+	private static final double[] PERCENTILES = {0.5, 0.99, 0.999};
+
+	// Totals by controller class, since the start of the run or the last clearTotals
+	private static final Map<String,TickProfile> totals = new TreeMap<String,TickProfile>();
+
+	private final LatencyHistogram[] histograms = new LatencyHistogram[PHASES.length];
+
+	public TickProfile(){
+		for(int i = 0; i < histograms.length; i++){
+			histograms[i] = new LatencyHistogram();
+		}
+	}
+
+	public void record(Phase phase, long nanos){
+		histograms[phase.ordinal()].record(nanos);
+	}
+
+	public LatencyHistogram get(Phase phase){
+		return histograms[phase.ordinal()];
+	}
+
+	public void add(TickProfile other){
+		for(int i = 0; i < histograms.length; i++){
+			histograms[i].add(other.histograms[i]);
+		}
+	}
+
+	public void clear(){
+		for(LatencyHistogram histogram : histograms){
+			histogram.clear();
+		}
+	}
+
+	/**
+	 * Prints a line for every phase that has been recorded, under a heading.
+	 */
+	public void print(String heading, PrintStream out){
+		out.println(heading);
+		for(Phase phase : PHASES){
+			LatencyHistogram histogram = get(phase);
+			if(histogram.getCount() == 0){
+				continue;
+			}
+			out.printf("  %-12s %10d", phase.name().toLowerCase(), histogram.getCount());
+			for(double percentile : PERCENTILES){
+				out.printf(" %10.2f", histogram.getPercentile(percentile) / 1e3);
+			}
+			out.printf(" %10.2f%n", histogram.getMax() / 1e3);
+		}
+	}
+
+	/**
+	 * Adds a finished run's profile to the totals for its controller.
+	 */
+	public static void addToTotals(String controllerName, TickProfile profile){
+		synchronized(totals){
+			TickProfile total = totals.get(controllerName);
+			if(total == null){
+				total = new TickProfile();
+				totals.put(controllerName, total);
+			}
+			total.add(profile);
+		}
+	}
+
+	/**
+	 * Prints the totals for every controller, in microseconds.
+	 */
+	public static void printTotals(PrintStream out){
+		synchronized(totals){
+			if(totals.isEmpty()){
+				return;
+			}
+			printHeader(out);
+			for(Map.Entry<String,TickProfile> total : totals.entrySet()){
+				total.getValue().print(total.getKey(), out);
+			}
+		}
+	}
+
+	public static void printHeader(PrintStream out){
+		out.printf("%-14s %10s %10s %10s %10s %10s%n", "Latency (us)", "Count", "p50", "p99", "p99.9", "Max");
+	}
+
+	public static void clearTotals(){
+		synchronized(totals){
+			totals.clear();
+		}
+	}
+}
@@ -0,0 +1,292 @@
+package world;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import tiles.MapTile;
+
+/**
+ * Compact storage for every tile of a map. Each cell is a single int holding one byte per
+ * layer, every byte being an index into a palette of shared MapTile instances (index 0
+ * means nothing on that layer). Layers are stacked in the order they are added, so a
+ * higher layer hides the ones underneath it when the cell is looked up, but all of them
+ * are kept.
+ *
+ * Cells are addressed in map coordinates (x to the right, y up), out of range cells are
+ * Empty. Looking a tile up never allocates.
+ *
+ * Cells are kept in square chunks of CHUNK_SIZE tiles a side. A grid built in memory
+ * only has the chunks that have something in them. A grid paged from a ChunkSource, as
+ * MapCache does for maps too big to hold, decodes chunks the first time a tile in them
+ * is looked up and keeps at most a fixed number, dropping the least recently used one
+ * (approximately, by the clock algorithm) to make room. Paged grids are read-only and
+ * safe to look up from several threads at once.
+ *
+ */
+public class TileGrid {
+
+	public static final int MAX_LAYERS = 4;
+	public static final int EMPTY = 0;
+
+	/** The width and height of a chunk, in tiles */
+	public static final int CHUNK_SIZE = 32;
+	static final int CHUNK_CELLS = CHUNK_SIZE * CHUNK_SIZE;
+	private static final int CHUNK_SHIFT = 5;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	private static final int BITS_PER_LAYER = 8;
+	private static final int LAYER_MASK = 0xFF;
+	private static final int MAX_PALETTE_SIZE = LAYER_MASK + 1;
+
+	/**
+	 * Where a paged grid reads its chunks from.
+	 */
+	interface ChunkSource {
+		/**
+		 * Fills cells with the chunk, row by row, CHUNK_SIZE cells to a row.
+		 */
+		void read(int chunk, int[] cells);
+	}
+
+	private final int width;
+	private final int height;
+	private final int chunksX;
+	private final AtomicReferenceArray<int[]> chunks;
+
+	// Paging, only used when there is a source
+	private final ChunkSource source;
+	private final int maxResidentChunks;
+	private final byte[] referenced;
+	private int residentChunks = 0;
+	private int clockHand = 0;
+
+	private final ArrayList<MapTile> paletteList = new ArrayList<MapTile>();
+	private MapTile[] palette;
+
+	public TileGrid(int width, int height){
+		this(width, height, null, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * A read-only grid whose chunks are read from source when needed.
+	 */
+	TileGrid(int width, int height, ChunkSource source, int maxResidentChunks){
+		if(maxResidentChunks < 1){
+			throw new IllegalArgumentException("At least one chunk has to fit");
+		}
+		this.width = width;
+		this.height = height;
+		this.chunksX = (width + CHUNK_MASK) >> CHUNK_SHIFT;
+		int chunkCount = chunksX * ((height + CHUNK_MASK) >> CHUNK_SHIFT);
+		this.chunks = new AtomicReferenceArray<int[]>(chunkCount);
+		this.source = source;
+		this.maxResidentChunks = maxResidentChunks;
+		this.referenced = source == null ? null : new byte[chunkCount];
+
+		paletteList.add(MapTile.EMPTY);
+		palette = paletteList.toArray(new MapTile[paletteList.size()]);
+	}
+
+	/**
+	 * Registers a tile in the palette, returning the index to place it with.
+	 */
+	public int addTile(MapTile tile){
+		int index = paletteList.indexOf(tile);
+		if(index >= 0){
+			return index;
+		}
+		if(paletteList.size() == MAX_PALETTE_SIZE){
+			throw new IllegalStateException("A map cannot have more than " + (MAX_PALETTE_SIZE - 1) + " distinct tiles");
+		}
+		paletteList.add(tile);
+		palette = paletteList.toArray(new MapTile[paletteList.size()]);
+		return paletteList.size() - 1;
+	}
+
+	public void set(int x, int y, int layer, int tileIndex){
+		if(source != null){
+			throw new IllegalStateException("A paged grid is read-only");
+		}
+		if(!contains(x, y)){
+			return;
+		}
+		if(layer < 0 || layer >= MAX_LAYERS){
+			throw new IllegalArgumentException("Layer " + layer + " out of range");
+		}
+		int chunk = chunkIndex(x, y);
+		int[] cells = chunks.get(chunk);
+		if(cells == null){
+			cells = new int[CHUNK_CELLS];
+			chunks.set(chunk, cells);
+			residentChunks++;
+		}
+		int shift = layer * BITS_PER_LAYER;
+		int i = cellIndex(x, y);
+		cells[i] = (cells[i] & ~(LAYER_MASK << shift)) | ((tileIndex & LAYER_MASK) << shift);
+	}
+
+	/**
+	 * The palette index of the top-most tile at (x, y), EMPTY if there is none.
+	 */
+	public int tileIndex(int x, int y){
+		if(!contains(x, y)){
+			return EMPTY;
+		}
+		return topIndex(cell(x, y));
+	}
+
+	/**
+	 * The palette index of the top-most tile in a cell as readChunk gives it.
+	 */
+	static int topIndex(int cell){
+		if(cell == 0){
+			return EMPTY;
+		}
+		// The highest non-zero byte belongs to the top-most layer
+		int shift = ((31 - Integer.numberOfLeadingZeros(cell)) / BITS_PER_LAYER) * BITS_PER_LAYER;
+		return (cell >>> shift) & LAYER_MASK;
+	}
+
+	/**
+	 * The palette index of the tile on a given layer of a cell as readChunk gives it.
+	 */
+	static int layerIndex(int cell, int layer){
+		return (cell >>> (layer * BITS_PER_LAYER)) & LAYER_MASK;
+	}
+
+	/**
+	 * The palette index of the tile on a given layer at (x, y), EMPTY if there is none.
+	 */
+	public int layerIndex(int x, int y, int layer){
+		if(!contains(x, y)){
+			return EMPTY;
+		}
+		return layerIndex(cell(x, y), layer);
+	}
+
+	public MapTile get(int x, int y){
+		return palette[tileIndex(x, y)];
+	}
+
+	public MapTile getLayer(int x, int y, int layer){
+		return palette[layerIndex(x, y, layer)];
+	}
+
+	public MapTile getTile(int tileIndex){
+		return palette[tileIndex];
+	}
+
+	public int getPaletteSize(){
+		return palette.length;
+	}
+
+	public boolean contains(int x, int y){
+		return x >= 0 && y >= 0 && x < width && y < height;
+	}
+
+	public int getWidth(){
+		return width;
+	}
+
+	public int getHeight(){
+		return height;
+	}
+
+	/**
+	 * Whether the grid is paged from a ChunkSource, so only some of it is in memory at once.
+	 */
+	public boolean isPaged(){
+		return source != null;
+	}
+
+	/**
+	 * How many chunks are held in memory right now.
+	 */
+	public synchronized int getResidentChunks(){
+		return residentChunks;
+	}
+
+	int getChunkCount(){
+		return chunks.length();
+	}
+
+	/**
+	 * The cells of a chunk, as ChunkSource.read lays them out.
+	 */
+	void readChunk(int chunk, int[] cells){
+		int[] resident = chunks.get(chunk);
+		if(resident == null && source != null){
+			resident = load(chunk);
+		}
+		if(resident == null){
+			Arrays.fill(cells, 0);
+		}
+		else{
+			System.arraycopy(resident, 0, cells, 0, CHUNK_CELLS);
+		}
+	}
+
+	private int cell(int x, int y){
+		int chunk = chunkIndex(x, y);
+		int[] cells = chunks.get(chunk);
+		if(cells == null){
+			if(source == null){
+				// Nothing was ever put in this chunk
+				return 0;
+			}
+			cells = load(chunk);
+		}
+		else if(source != null && referenced[chunk] == 0){
+			referenced[chunk] = 1;
+		}
+		return cells[cellIndex(x, y)];
+	}
+
+	private synchronized int[] load(int chunk){
+		int[] cells = chunks.get(chunk);
+		if(cells != null){
+			// Another thread got here first
+			return cells;
+		}
+		while(residentChunks >= maxResidentChunks){
+			evict();
+		}
+		cells = new int[CHUNK_CELLS];
+		source.read(chunk, cells);
+		chunks.set(chunk, cells);
+		referenced[chunk] = 1;
+		residentChunks++;
+		return cells;
+	}
+
+	/**
+	 * Drops one chunk: the hand sweeps round the chunks, giving each one that has been used
+	 * since it last passed a second chance, and drops the first that has not.
+	 */
+	private void evict(){
+		while(true){
+			int chunk = clockHand;
+			clockHand = (clockHand + 1) % chunks.length();
+			if(chunks.get(chunk) == null){
+				continue;
+			}
+			if(referenced[chunk] != 0){
+				referenced[chunk] = 0;
+				continue;
+			}
+			// Threads still reading the old array keep a valid copy of it
+			chunks.set(chunk, null);
+			residentChunks--;
+			return;
+		}
+	}
+
+	private int chunkIndex(int x, int y){
+		return (y >> CHUNK_SHIFT) * chunksX + (x >> CHUNK_SHIFT);
+	}
+
+	private static int cellIndex(int x, int y){
+		return ((y & CHUNK_MASK) << CHUNK_SHIFT) | (x & CHUNK_MASK);
+	}
+}
@@ -0,0 +1,276 @@
+package world;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+import tiles.MapTile;
+import tiles.TileKind;
+import tiles.TrapTile;
+
+/**
+ * Where the start, exit and trap tiles of a map are, so that finding the exit or the
+ * nearest patch of lava is a lookup rather than a search of the map.
+ *
+ * It is built with a single pass over the TileGrid, a chunk at a time. Starts and exits
+ * are looked for on every layer, so one underneath a trap is still found, but traps only
+ * count where the car can meet them, on top. Traps are listed by the name of their
+ * TrapType. Each list of tiles is sorted row by row and bucketed by row, so
+ * the tiles in a rectangle or the one nearest a point are found without looking at the
+ * rest. The index never changes once built and is shared read-only by all the cars on
+ * the map.
+ */
+public class TileIndex {
+
+	/** What Tiles.indexOf and Tiles.nearest give when there is no such tile */
+	public static final int NOT_FOUND = -1;
+
+	private static final int NOT_INDEXED = -1;
+	private static final int START = 0;
+	private static final int EXIT = 1;
+	private static final int FIRST_TRAP = 2;
+
+	private final Tiles starts;
+	private final Tiles exits;
+	private final Map<String,Tiles> traps;
+
+	public TileIndex(TileGrid grid){
+		int width = grid.getWidth();
+		int height = grid.getHeight();
+
+		// What each palette entry is listed as, trap types numbered as they are met
+		TreeMap<String,Integer> trapLists = new TreeMap<String,Integer>();
+		int[] list = new int[grid.getPaletteSize()];
+		Arrays.fill(list, NOT_INDEXED);
+		int lists = FIRST_TRAP;
+		for(int i = 1; i < list.length; i++){
+			MapTile tile = grid.getTile(i);
+			if(tile.getKind() == TileKind.START){
+				list[i] = START;
+			}
+			else if(tile.isExit()){
+				list[i] = EXIT;
+			}
+			else if(tile instanceof TrapTile){
+				String type = ((TrapTile) tile).getType();
+				Integer number = trapLists.get(type);
+				if(number == null){
+					number = lists++;
+					trapLists.put(type, number);
+				}
+				list[i] = number;
+			}
+		}
+
+		// Cells found for each list, as y * width + x
+		long[][] found = new long[lists][16];
+		int[] counts = new int[lists];
+		int chunksX = (width + TileGrid.CHUNK_SIZE - 1) / TileGrid.CHUNK_SIZE;
+		int[] cells = new int[TileGrid.CHUNK_CELLS];
+		for(int chunk = 0; chunk < grid.getChunkCount(); chunk++){
+			grid.readChunk(chunk, cells);
+			int originX = (chunk % chunksX) * TileGrid.CHUNK_SIZE;
+			int originY = (chunk / chunksX) * TileGrid.CHUNK_SIZE;
+			for(int i = 0; i < cells.length; i++){
+				int cell = cells[i];
+				if(cell == 0){
+					continue;
+				}
+				int x = originX + i % TileGrid.CHUNK_SIZE;
+				int y = originY + i / TileGrid.CHUNK_SIZE;
+				if(!grid.contains(x, y)){
+					continue;
+				}
+				int top = TileGrid.topIndex(cell);
+				for(int layer = 0; layer < TileGrid.MAX_LAYERS; layer++){
+					int tile = TileGrid.layerIndex(cell, layer);
+					int number = list[tile];
+					if(number == NOT_INDEXED || number >= FIRST_TRAP && tile != top
+							|| contains(found[number], counts[number], (long) y * width + x)){
+						continue;
+					}
+					if(counts[number] == found[number].length){
+						found[number] = Arrays.copyOf(found[number], counts[number] * 2);
+					}
+					found[number][counts[number]++] = (long) y * width + x;
+				}
+			}
+		}
+
+		starts = new Tiles(width, height, found[START], counts[START]);
+		exits = new Tiles(width, height, found[EXIT], counts[EXIT]);
+		TreeMap<String,Tiles> traps = new TreeMap<String,Tiles>();
+		for(Map.Entry<String,Integer> entry : trapLists.entrySet()){
+			int number = entry.getValue();
+			traps.put(entry.getKey(), new Tiles(width, height, found[number], counts[number]));
+		}
+		this.traps = Collections.unmodifiableMap(traps);
+	}
+
+	/**
+	 * Whether cell was the last one added, the only way a cell can be met twice, when
+	 * two of its layers hold the same kind of tile.
+	 */
+	private static boolean contains(long[] found, int count, long cell){
+		return count > 0 && found[count - 1] == cell;
+	}
+
+	public Tiles getStarts(){
+		return starts;
+	}
+
+	public Tiles getExits(){
+		return exits;
+	}
+
+	/**
+	 * The tiles of the trap type with the given name, none if the map has no such trap.
+	 */
+	public Tiles getTraps(String type){
+		Tiles tiles = traps.get(type);
+		return tiles != null ? tiles : Tiles.NONE;
+	}
+
+	/**
+	 * Every trap on the map, by the name of its type, in name order.
+	 */
+	public Map<String,Tiles> getTraps(){
+		return traps;
+	}
+
+	/**
+	 * A set of tile positions, sorted by y and then x.
+	 */
+	public static final class Tiles {
+
+		static final Tiles NONE = new Tiles(0, 0, new long[0], 0);
+
+		private final int height;
+		private final int[] xs;
+		private final int[] ys;
+		// The tiles of row y are those from rowStart[y] up to rowStart[y + 1]
+		private final int[] rowStart;
+
+		private Tiles(int width, int height, long[] cells, int count){
+			this.height = height;
+			long[] sorted = Arrays.copyOf(cells, count);
+			Arrays.sort(sorted);
+			xs = new int[count];
+			ys = new int[count];
+			rowStart = new int[height + 1];
+			for(int i = 0; i < count; i++){
+				xs[i] = (int) (sorted[i] % width);
+				ys[i] = (int) (sorted[i] / width);
+				rowStart[ys[i] + 1]++;
+			}
+			for(int y = 0; y < height; y++){
+				rowStart[y + 1] += rowStart[y];
+			}
+		}
+
+		public int size(){
+			return xs.length;
+		}
+
+		public boolean isEmpty(){
+			return xs.length == 0;
+		}
+
+		public int getX(int i){
+			return xs[i];
+		}
+
+		public int getY(int i){
+			return ys[i];
+		}
+
+		/**
+		 * Which of the tiles is at (x, y), NOT_FOUND if none of them is.
+		 */
+		public int indexOf(int x, int y){
+			if(y < 0 || y >= height){
+				return NOT_FOUND;
+			}
+			int i = Arrays.binarySearch(xs, rowStart[y], rowStart[y + 1], x);
+			return i >= 0 ? i : NOT_FOUND;
+		}
+
+		/**
+		 * How many of the tiles are inside the rectangle, edges included.
+		 */
+		public int countIn(int minX, int minY, int maxX, int maxY){
+			int count = 0;
+			for(int y = Math.max(minY, 0); y <= Math.min(maxY, height - 1); y++){
+				count += Math.max(0, rowEnd(y, maxX) - rowFrom(y, minX));
+			}
+			return count;
+		}
+
+		/**
+		 * Puts the index of each tile inside the rectangle, edges included, into found,
+		 * as many as fit, in row order.
+		 * @return how many were put in
+		 */
+		public int findIn(int minX, int minY, int maxX, int maxY, int[] found){
+			int count = 0;
+			for(int y = Math.max(minY, 0); y <= Math.min(maxY, height - 1) && count < found.length; y++){
+				for(int i = rowFrom(y, minX); i < rowEnd(y, maxX) && count < found.length; i++){
+					found[count++] = i;
+				}
+			}
+			return count;
+		}
+
+		/**
+		 * Which of the tiles is the nearest to (x, y) in a straight line, NOT_FOUND if
+		 * there are none. Only the rows that could hold a nearer one are looked at.
+		 */
+		public int nearest(int x, int y){
+			int best = NOT_FOUND;
+			long bestDistance = Long.MAX_VALUE;
+			for(int dy = 0; (long) dy * dy < bestDistance; dy++){
+				int below = y - dy;
+				int above = y + dy;
+				if(below < 0 && above >= height){
+					break;
+				}
+				for(int side = 0; side < (dy == 0 ? 1 : 2); side++){
+					int row = side == 0 ? below : above;
+					if(row < 0 || row >= height || rowStart[row] == rowStart[row + 1]){
+						continue;
+					}
+					// The nearest in a row is one of the two either side of x
+					int next = rowFrom(row, x);
+					for(int i = next - 1; i <= next; i++){
+						if(i < rowStart[row] || i >= rowStart[row + 1]){
+							continue;
+						}
+						long distance = (long) (xs[i] - x) * (xs[i] - x) + (long) dy * dy;
+						if(distance < bestDistance){
+							bestDistance = distance;
+							best = i;
+						}
+					}
+				}
+			}
+			return best;
+		}
+
+		/**
+		 * The first of the tiles in row y at or to the right of x.
+		 */
+		private int rowFrom(int y, int x){
+			int i = Arrays.binarySearch(xs, rowStart[y], rowStart[y + 1], x);
+			return i >= 0 ? i : -i - 1;
+		}
+
+		/**
+		 * One past the last of the tiles in row y at or to the left of x.
+		 */
+		private int rowEnd(int y, int x){
+			int i = Arrays.binarySearch(xs, rowStart[y], rowStart[y + 1], x);
+			return i >= 0 ? i + 1 : -i - 1;
+		}
+	}
+}
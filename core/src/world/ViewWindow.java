@@ -0,0 +1,97 @@
+package world;
+
+import java.util.HashMap;
+
+import tiles.MapTile;
+import tiles.TileKind;
+import utilities.Coordinate;
+
+/**
+ * A fixed size window of (2 * VIEW_SQUARE + 1)^2 tiles centred on the car. The window is
+ * meant to be owned by a controller and refilled in place every tick, so reading the
+ * car's surroundings does not allocate. Tiles can be read relative to the centre (dx, dy
+ * in [-VIEW_SQUARE, VIEW_SQUARE]) or by absolute map coordinate; both return null
+ * outside the window, like the HashMap returned by Car.getView().
+ *
+ */
+public class ViewWindow {
+
+	public static final int SIZE = 2 * Car.VIEW_SQUARE + 1;
+
+	private final int[] tileIndices = new int[SIZE * SIZE];
+	private TileGrid grid;
+	private int centreX;
+	private int centreY;
+
+	void fill(TileGrid grid, int centreX, int centreY){
+		this.grid = grid;
+		this.centreX = centreX;
+		this.centreY = centreY;
+		int i = 0;
+		for(int dy = -Car.VIEW_SQUARE; dy <= Car.VIEW_SQUARE; dy++){
+			for(int dx = -Car.VIEW_SQUARE; dx <= Car.VIEW_SQUARE; dx++){
+				tileIndices[i++] = grid.tileIndex(centreX + dx, centreY + dy);
+			}
+		}
+	}
+
+	/**
+	 * The tile dx, dy away from the car's tile.
+	 */
+	public MapTile get(int dx, int dy){
+		if(!contains(dx, dy)){
+			return null;
+		}
+		return grid.getTile(tileIndices[index(dx, dy)]);
+	}
+
+	public MapTile getAbsolute(int x, int y){
+		return get(x - centreX, y - centreY);
+	}
+
+	/**
+	 * The kind of the tile dx, dy away from the car's tile, EMPTY outside the window.
+	 */
+	public TileKind getKind(int dx, int dy){
+		if(!contains(dx, dy)){
+			return TileKind.EMPTY;
+		}
+		return grid.getTile(tileIndices[index(dx, dy)]).getKind();
+	}
+
+	public TileKind getKindAbsolute(int x, int y){
+		return getKind(x - centreX, y - centreY);
+	}
+
+	public boolean contains(int dx, int dy){
+		return dx >= -Car.VIEW_SQUARE && dx <= Car.VIEW_SQUARE && dy >= -Car.VIEW_SQUARE && dy <= Car.VIEW_SQUARE;
+	}
+
+	/**
+	 * The x coordinate of the car's tile when the window was last filled.
+	 */
+	public int getCentreX(){
+		return centreX;
+	}
+
+	public int getCentreY(){
+		return centreY;
+	}
+
+	/**
+	 * Copies the window into the Coordinate keyed map used by Car.getView().
+	 */
+	public HashMap<Coordinate,MapTile> toMap(){
+		HashMap<Coordinate,MapTile> subMap = new HashMap<Coordinate,MapTile>();
+		for(int x = centreX - Car.VIEW_SQUARE; x <= centreX + Car.VIEW_SQUARE; x++){
+			for(int y = centreY - Car.VIEW_SQUARE; y <= centreY + Car.VIEW_SQUARE; y++){
+				subMap.put(new Coordinate(x,y), getAbsolute(x, y));
+			}
+		}
+		return subMap;
+	}
+
+	private int index(int dx, int dy){
+		return (dy + Car.VIEW_SQUARE) * SIZE + (dx + Car.VIEW_SQUARE);
+	}
+}
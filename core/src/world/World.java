@@ -1,22 +1,22 @@
 package world;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
 
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.graphics.g2d.Sprite;
 import com.badlogic.gdx.maps.tiled.TiledMap;
-import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
-import com.badlogic.gdx.maps.tiled.TiledMapTileLayer.Cell;
+import com.badlogic.gdx.math.Vector2;
 
 import controller.AIController;
 import controller.CarController;
 import controller.ManualController;
+import events.TickEvent;
 import mycontroller.MyAIController;
 import tiles.MapTile;
-import tiles.TrapTile;
-import tiles.UtilityTile;
-import utilities.Coordinate;
 /**
  * This class provides functionality for use within the simulation system. It is NOT intended to be
  * read or understood for SWEN30006 Part C. Comments have been intentionally removed to reinforce
@@ -25,128 +25,290 @@ import utilities.Coordinate;
  */
 
 /**
- * GO TO LINE 67 TO ALTER THE CONTROLLER
+ * GO TO THE World(WorldMap) CONSTRUCTOR TO ALTER THE CONTROLLER
  *
  */
 public class World {
 	
-	private Car car;
+	private static final String CAR_SPRITE = "sprites/car2.png";
 	
-	// Car's controller
-	private static CarController controller;
+	private final List<Car> cars = new ArrayList<Car>();
+	private final List<Car> carsView = Collections.unmodifiableList(cars);
 	
-	private static TiledMap map;
+	// Cars' controllers, in the same order as the cars
+	private final List<CarController> controllers = new ArrayList<CarController>();
+	private final List<CarController> controllersView = Collections.unmodifiableList(controllers);
 	
-
-	
-	public static int MAP_PIXEL_SIZE = 32;
-	public static int MAP_HEIGHT;
-	public static int MAP_WIDTH;
+	// Every car's sprite is drawn from the one texture
+	private final Texture carTexture;
+	// Whether this world loaded carTexture itself, and so disposes of it
+	private final boolean ownsCarTexture;
+	private final CarSpatialHash nearby = new CarSpatialHash(1024);
+	private int[] touching = new int[16];
+	private boolean[] collided = new boolean[0];
 	
-	private static String[] LAYER_NAME = {"Road","Utility","Trap","Wall"};
+	private final WorldMap map;
+	private long controllerNanos = 0;
+	private final TickProfile profile = new TickProfile();
+	private double simulatedSeconds = 0;
 	
-	private static HashMap<Coordinate,MapTile> mapTiles = new HashMap<Coordinate,MapTile>();
+	public static final int MAP_PIXEL_SIZE = 32;
 	
 	public World(TiledMap map){
-		World.map = map;
-		
-		TiledMapTileLayer roadLayer = (TiledMapTileLayer) getMap().getLayers().get("Road");
-		MAP_HEIGHT = roadLayer.getHeight();
-		MAP_WIDTH = roadLayer.getWidth();
-		
-		initializeMap(map);
-		
-
+		this(new WorldMap(map));
+	}
+	
+	public World(WorldMap map){
+		this(map, new Texture(CAR_SPRITE), new Function<Car,CarController>(){
+			@Override
+			public CarController apply(Car car){
+				// Add the car controller
+				// return new ManualController(car);
+				// return new AIController(car);
+				// return new RouteController(car);
+				return new MyAIController(car);
+			}
+		}, true);
+	}
+	
+	/**
+	 * Creates a world on a (possibly shared) map, with a car at the start drawn using
+	 * carTexture and driven by the controller the factory creates for it. More cars can
+	 * be added with addCar. The texture stays the caller's to dispose of.
+	 */
+	public World(WorldMap map, Texture carTexture, Function<Car,CarController> controllerFactory){
+		this(map, carTexture, controllerFactory, false);
+	}
+	
+	private World(WorldMap map, Texture carTexture, Function<Car,CarController> controllerFactory, boolean ownsCarTexture){
+		this.map = map;
+		this.carTexture = carTexture;
+		this.ownsCarTexture = ownsCarTexture;
 		
-		car = new Car(new Sprite(new Texture("sprites/car2.png")));
+		add(new Car(this, new Sprite(carTexture)), controllerFactory);
+	}
+	
+	/**
+	 * Frees the car texture if this world loaded it, i.e. it was made without being given
+	 * one. The world should not be drawn afterwards.
+	 */
+	public void dispose(){
+		if(ownsCarTexture){
+			carTexture.dispose();
+		}
+	}
+	
+	/**
+	 * Adds another car at (x, y), handling as parameters says and driven by the controller
+	 * the factory creates for it. It is updated after the cars already in the world.
+	 */
+	public Car addCar(float x, float y, CarParameters parameters, Function<Car,CarController> controllerFactory){
+		return add(new Car(this, new Sprite(carTexture), parameters, x, y), controllerFactory);
+	}
+	
+	private Car add(Car car, Function<Car,CarController> controllerFactory){
 		// Set car size relative to the map scaling.
 		car.setSize(car.getWidth()*(1/32f), car.getHeight()*(1/32f));
 		car.setOriginCenter();
-		System.out.println(map.getLayers().get("Wall"));
 		
-		// Add the car controller
-		// controller = new ManualController(car);
-		// controller = new AIController(car);
-		controller = new MyAIController(car);
-	}
-	
-	private void initializeMap(TiledMap map2) {
-		// Iterate through all layer names
-		for(String layerName : LAYER_NAME){
-			// Set the layer
-			TiledMapTileLayer layer = (TiledMapTileLayer) getMap().getLayers().get(layerName);
-			
-			// Iterate through the layers and input them into the hashtable
-			System.out.println(layerName+" width: "+layer.getWidth()+" height: "+layer.getHeight());
-			for(int x = 0; x < layer.getWidth(); x++){
-				for(int y = 0; y < layer.getHeight(); y++){
-					Cell cell = layer.getCell(x, y);
-					if(cell != null){
-						
-						int reverseYAxis = layer.getHeight() -y;
-						MapTile newTile = null; // Only stays null if exception/exit
-						
-						if(layerName.equals("Trap")){
-							String className = MapTile.tileNameSpace + (String) cell.getTile().getProperties().get("type");
-							try {
-								newTile = (TrapTile) Class.forName( className ).newInstance();
-							} catch (Exception e) {
-								e.printStackTrace();
-								System.exit(1);
-							}
-						}
-						else if(layerName.equals("Utility")){
-							UtilityTile.Type type = UtilityTile.Type.START;
-							if(cell.getTile().getProperties().get("exit") != null){
-								type = UtilityTile.Type.EXIT;
-							}
-							newTile = new UtilityTile(layerName,type);
-						}
-						else{
-							newTile = new MapTile(layerName);
-						}
-						mapTiles.put(new Coordinate(x, reverseYAxis), newTile);
+		cars.add(car);
+		nearby.add(cars.size() - 1, car.getRadius());
+		collided = new boolean[cars.size()];
+		controllers.add(controllerFactory.apply(car));
+		return car;
+	}
+
+	/**
+	 * Moves every car that has not finished on by delta: every controller is updated,
+	 * then every car, then cars that have run into each other are bumped back.
+	 */
+	public void update(float delta){
+		TickEvent event = new TickEvent();
+		event.begin();
+		long start = System.nanoTime();
+		for(int i = 0; i < cars.size(); i++){
+			if(!cars.get(i).getOutcome().isFinished()){
+				controllers.get(i).tick(delta);
+			}
+		}
+		long controlled = System.nanoTime();
+		controllerNanos += controlled - start;
+		profile.record(TickProfile.Phase.CONTROLLER, controlled - start);
+        
+        // Update the cars
+		int running = 0;
+		for(int i = 0; i < cars.size(); i++){
+			Car car = cars.get(i);
+			if(!car.getOutcome().isFinished()){
+				car.update(delta);
+				running++;
+			}
+		}
+		if(cars.size() > 1){
+			collide(delta);
+		}
+		profile.record(TickProfile.Phase.CAR, System.nanoTime() - controlled);
+		simulatedSeconds += delta;
+
+		if(event.shouldCommit()){
+			Car car = cars.get(0);
+			event.controller = controllers.get(0).getClass();
+			event.simSeconds = (float) simulatedSeconds;
+			event.tileX = Math.round(car.getX());
+			event.tileY = Math.round(car.getY());
+			event.tile = lookUp(event.tileX, event.tileY).getKind().name();
+			event.speed = car.getVelocity();
+			event.health = car.getHealth();
+			event.cars = running;
+			event.commit();
+		}
+	}
+	
+	/**
+	 * Bumps back every car that has driven into another one. Of two cars that touch, each
+	 * one heading towards the other goes back to where it was before this tick and stops,
+	 * as if it had hit a wall; one parked or backing away is left where it is. Two cars
+	 * in exactly the same place are heading neither towards nor away from each other, so
+	 * the one added later gives way and goes back. Finished cars are parked off the road
+	 * and nothing can hit them.
+	 */
+	private void collide(float delta){
+		for(int i = 0; i < cars.size(); i++){
+			Car car = cars.get(i);
+			collided[i] = false;
+			if(car.getOutcome().isFinished()){
+				nearby.remove(i);
+			}
+			else{
+				nearby.update(i, car.getX(), car.getY());
+			}
+		}
+		for(int i = 0; i < cars.size(); i++){
+			int found = nearby.touching(i, touching);
+			if(found == touching.length){
+				// Some may not have fitted, look again with room for them all
+				touching = new int[cars.size()];
+				found = nearby.touching(i, touching);
+			}
+			Car car = cars.get(i);
+			for(int j = 0; j < found; j++){
+				Car other = cars.get(touching[j]);
+				float dx = other.getX() - car.getX();
+				float dy = other.getY() - car.getY();
+				if(dx == 0 && dy == 0){
+					// touching only finds cars numbered higher than i, so other is the later one
+					if(!collided[touching[j]]){
+						other.collide(delta);
+						collided[touching[j]] = true;
 					}
+					continue;
+				}
+				if(!collided[i] && heading(car, dx, dy)){
+					car.collide(delta);
+					collided[i] = true;
+				}
+				if(!collided[touching[j]] && heading(other, -dx, -dy)){
+					other.collide(delta);
+					collided[touching[j]] = true;
 				}
 			}
 		}
 	}
-
-	public void update(float delta){
-		controller.update(delta);
-        
-        // Update the car
-        car.update(delta);
+	
+	private static boolean heading(Car car, float dx, float dy){
+		Vector2 velocity = car.getRawVelocity();
+		return velocity.x * dx + velocity.y * dy > 0;
 	}
 	
 	public void render(Batch batch){
-		car.draw(batch);
+		render(batch, 1);
+	}
+
+	/**
+	 * Draws the world a fraction alpha of the way from the previous tick to the current one.
+	 */
+	public void render(Batch batch, float alpha){
+		for(int i = 0; i < cars.size(); i++){
+			cars.get(i).draw(batch, alpha);
+		}
 	}
 	
-	public static TiledMap getMap(){
+	public WorldMap getMap(){
 		return map;
 	}
 	
-	public static MapTile lookUp(double futureX, double futureY){
-		
-		
-		
-		// Convert Y coordinate
-		int x = (int) Math.round(futureX);
-		int y =  MAP_HEIGHT - (int) Math.round(futureY);
-		
-		if(mapTiles.containsKey(new Coordinate(x,y))){
-			return mapTiles.get(new Coordinate(x,y));
-		}
-		else{
-			return new MapTile("Empty");
-		}
-		
+	public int getMapWidth(){
+		return map.getWidth();
 	}
 	
+	public int getMapHeight(){
+		return map.getHeight();
+	}
+	
+	public MapTile lookUp(double futureX, double futureY){
+		return map.lookUp(futureX, futureY);
+	}
 	
+	public MapTile lookUp(int x, int y){
+		return map.lookUp(x, y);
+	}
+	
+	public TileGrid getTileGrid(){
+		return map.getTileGrid();
+	}
+	
+	public DistanceFields getDistanceFields(){
+		return map.getDistanceFields();
+	}
+	
+	
+	/**
+	 * The first car, the one at the start of the map.
+	 */
 	public Car getCar(){
-		return this.car;
+		return cars.get(0);
+	}
+
+	/**
+	 * The first car's controller.
+	 */
+	public CarController getController(){
+		return controllers.get(0);
+	}
+
+	/**
+	 * Every car in the world, in the order they were added and are updated in.
+	 */
+	public List<Car> getCars(){
+		return carsView;
+	}
+
+	/**
+	 * Every car's controller, in the same order as getCars.
+	 */
+	public List<CarController> getControllers(){
+		return controllersView;
+	}
+
+	/**
+	 * The total time spent in the controller's update so far, in nanoseconds.
+	 */
+	public long getControllerNanos(){
+		return controllerNanos;
+	}
+
+	/**
+	 * How much simulated time the world has been updated by so far.
+	 */
+	public double getSimulatedSeconds(){
+		return simulatedSeconds;
+	}
+
+	/**
+	 * How long each phase of this world's ticks has taken so far.
+	 */
+	public TickProfile getTickProfile(){
+		return profile;
 	}
 	
 }
@@ -0,0 +1,273 @@
+package world;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import static org.apache.logging.log4j.util.Unbox.box;
+
+import com.badlogic.gdx.maps.MapProperties;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.badlogic.gdx.maps.tiled.TiledMapTile;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer.Cell;
+
+import exceptions.UnknownTrapException;
+import planning.FlowField;
+import tiles.MapTile;
+import tiles.TrapParameters;
+import tiles.TrapRegistry;
+import tiles.TrapTile;
+import tiles.UtilityTile;
+
+/**
+ * A map parsed into the form the simulation runs on. Once built it is never modified, so
+ * one WorldMap can be shared read-only by any number of Worlds, including Worlds stepped
+ * concurrently on different threads.
+ *
+ */
+public class WorldMap {
+
+	private static Logger logger = LogManager.getLogger();
+
+	private static final String[] LAYER_NAME = {"Road","Utility","Trap","Wall"};
+
+	private final TiledMap tiledMap;
+	private final TileGrid tileGrid;
+	// Maps up to this many tiles get their index, distance fields and flow field as they are
+	// loaded. The fields take several ints a tile, so bigger maps only build them if they
+	// are used, and CarController answers its per-tick queries on them without the fields.
+	private static final int EAGER_FIELDS_TILES = 512 * 512;
+
+	private volatile TileIndex tileIndex;
+	private volatile DistanceFields distanceFields;
+	private volatile FlowField flowField;
+	private final int width;
+	private final int height;
+
+	private boolean hasStart = false;
+	private int startX;
+	private int startY;
+
+	public WorldMap(TiledMap tiledMap){
+		this.tiledMap = tiledMap;
+
+		TiledMapTileLayer roadLayer = (TiledMapTileLayer) tiledMap.getLayers().get("Road");
+		this.height = roadLayer.getHeight();
+		this.width = roadLayer.getWidth();
+		this.tileGrid = new TileGrid(width, height);
+
+		initializeMap();
+		findStartPosition();
+		buildFieldsIfSmall();
+	}
+
+	/**
+	 * A map whose tiles are already known, such as one read back by MapCache or generated.
+	 * @param tiledMap the parsed map for drawing, null if it is not needed
+	 */
+	public WorldMap(TiledMap tiledMap, TileGrid tileGrid, boolean hasStart, int startX, int startY){
+		this.tiledMap = tiledMap;
+		this.tileGrid = tileGrid;
+		this.width = tileGrid.getWidth();
+		this.height = tileGrid.getHeight();
+		this.hasStart = hasStart;
+		this.startX = startX;
+		this.startY = startY;
+		buildFieldsIfSmall();
+	}
+
+	private void buildFieldsIfSmall(){
+		if(!isLarge()){
+			getIndex();
+			getFlowField();
+		}
+	}
+
+	private void initializeMap() {
+		// Tiles are stateless, so every cell of the same kind shares one instance
+		HashMap<String,Integer> tileIndices = new HashMap<String,Integer>();
+		// Traps take their settings from their tile in the tileset, so they are told apart
+		// by that tile and each one is only looked up in the TrapRegistry once
+		IdentityHashMap<TiledMapTile,Integer> trapIndices = new IdentityHashMap<TiledMapTile,Integer>();
+		
+		// Iterate through all layer names
+		for(int layerIndex = 0; layerIndex < LAYER_NAME.length; layerIndex++){
+			String layerName = LAYER_NAME[layerIndex];
+			// Set the layer
+			TiledMapTileLayer layer = (TiledMapTileLayer) tiledMap.getLayers().get(layerName);
+			
+			// Iterate through the layers and input them into the grid
+			logger.info("{} width: {} height: {}", layerName, box(layer.getWidth()), box(layer.getHeight()));
+			for(int x = 0; x < layer.getWidth(); x++){
+				for(int y = 0; y < layer.getHeight(); y++){
+					Cell cell = layer.getCell(x, y);
+					if(cell == null){
+						continue;
+					}
+					if(layerName.equals("Trap")){
+						Integer tileIndex = trapIndices.get(cell.getTile());
+						if(tileIndex == null){
+							tileIndex = tileGrid.addTile(createTrap(cell.getTile().getProperties()));
+							trapIndices.put(cell.getTile(), tileIndex);
+						}
+						tileGrid.set(x, y, layerIndex, tileIndex);
+						continue;
+					}
+					
+					String key = layerName;
+					if(layerName.equals("Utility") && cell.getTile().getProperties().get("exit") != null){
+						key = layerName + UtilityTile.Type.EXIT;
+					}
+					
+					Integer tileIndex = tileIndices.get(key);
+					if(tileIndex == null){
+						tileIndex = tileGrid.addTile(createTile(layerName, key));
+						tileIndices.put(key, tileIndex);
+					}
+					tileGrid.set(x, y, layerIndex, tileIndex);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * The trap a tile of the Trap layer stands for: its "type" property names the trap and
+	 * any other properties are its settings.
+	 * @throws UnknownTrapException if the type is not one the TrapRegistry knows
+	 */
+	private static TrapTile createTrap(MapProperties properties){
+		HashMap<String,Object> settings = new HashMap<String,Object>();
+		Iterator<String> names = properties.getKeys();
+		while(names.hasNext()){
+			String name = names.next();
+			if(!name.equals("type")){
+				settings.put(name, properties.get(name));
+			}
+		}
+		return TrapRegistry.get((String) properties.get("type"), TrapParameters.of(settings));
+	}
+	
+	private static MapTile createTile(String layerName, String key){
+		if(layerName.equals("Utility")){
+			return key.endsWith(UtilityTile.Type.EXIT.name()) ? UtilityTile.EXIT : UtilityTile.START;
+		}
+		else if(layerName.equals("Wall")){
+			return MapTile.WALL;
+		}
+		return MapTile.ROAD;
+	}
+
+	/**
+	 * The start the car is placed on: of the start tiles in the index, the one with the
+	 * lowest x, then the lowest y.
+	 */
+	private void findStartPosition(){
+		TileIndex.Tiles starts = getIndex().getStarts();
+		for(int i = 0; i < starts.size(); i++){
+			if(!hasStart || starts.getX(i) < startX){
+				hasStart = true;
+				startX = starts.getX(i);
+				startY = starts.getY(i);
+			}
+		}
+	}
+
+	public MapTile lookUp(double futureX, double futureY){
+		// The grid is stored with the Y axis the right way up, so no conversion is needed
+		int x = (int) Math.round(futureX);
+		int y = (int) Math.round(futureY);
+		
+		return tileGrid.get(x, y);
+	}
+	
+	public MapTile lookUp(int x, int y){
+		return tileGrid.get(x, y);
+	}
+
+	/**
+	 * The parsed Tiled map, for drawing. Null if the map was loaded from a MapCache without one.
+	 */
+	public TiledMap getTiledMap(){
+		return tiledMap;
+	}
+
+	public TileGrid getTileGrid(){
+		return tileGrid;
+	}
+
+	/**
+	 * Where the start, exit and trap tiles are, read-only.
+	 */
+	public TileIndex getIndex(){
+		TileIndex index = tileIndex;
+		if(index == null){
+			synchronized(this){
+				if(tileIndex == null){
+					tileIndex = new TileIndex(tileGrid);
+				}
+				index = tileIndex;
+			}
+		}
+		return index;
+	}
+
+	public DistanceFields getDistanceFields(){
+		DistanceFields fields = distanceFields;
+		if(fields == null){
+			synchronized(this){
+				if(distanceFields == null){
+					distanceFields = new DistanceFields(tileGrid);
+				}
+				fields = distanceFields;
+			}
+		}
+		return fields;
+	}
+
+	/**
+	 * The way to the nearest exit from every tile, read-only.
+	 */
+	public FlowField getFlowField(){
+		FlowField field = flowField;
+		if(field == null){
+			synchronized(this){
+				if(flowField == null){
+					flowField = new FlowField(tileGrid, getDistanceFields());
+				}
+				field = flowField;
+			}
+		}
+		return field;
+	}
+
+	/**
+	 * Whether the map has too many tiles to build its index, distance fields and flow
+	 * field as it is loaded. Depends only on the size of the map, not how it was loaded.
+	 */
+	public boolean isLarge(){
+		return (long) width * height > EAGER_FIELDS_TILES;
+	}
+
+	public int getWidth(){
+		return width;
+	}
+
+	public int getHeight(){
+		return height;
+	}
+
+	public boolean hasStart(){
+		return hasStart;
+	}
+
+	public int getStartX(){
+		return startX;
+	}
+
+	public int getStartY(){
+		return startY;
+	}
+}
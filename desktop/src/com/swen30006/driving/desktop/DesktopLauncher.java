@@ -4,11 +4,24 @@ import com.badlogic.gdx.backends.lwjgl.LwjglApplication;
 import com.badlogic.gdx.backends.lwjgl.LwjglApplicationConfiguration;
 import com.swen30006.driving.Simulation;
 
+/**
+ * Usage: DesktopLauncher [ticksPerSecond] [maxCatchUpSteps]
+ * The simulation runs at a fixed tick rate whatever the frame rate, so frames are capped
+ * and vsynced rather than drawn as fast as possible.
+ */
 public class DesktopLauncher {
+
+	private static final int DEFAULT_TICKS_PER_SECOND = 60;
+	private static final int DEFAULT_MAX_CATCH_UP_STEPS = 5;
+
 	public static void main (String[] arg) {
+		int ticksPerSecond = arg.length > 0 ? Integer.parseInt(arg[0]) : DEFAULT_TICKS_PER_SECOND;
+		int maxCatchUpSteps = arg.length > 1 ? Integer.parseInt(arg[1]) : DEFAULT_MAX_CATCH_UP_STEPS;
+
 		LwjglApplicationConfiguration config = new LwjglApplicationConfiguration();
-		config.backgroundFPS = 0;
-		config.foregroundFPS = 0;
-		new LwjglApplication(new Simulation(), config);
+		config.backgroundFPS = 30;
+		config.foregroundFPS = 60;
+		config.vSyncEnabled = true;
+		new LwjglApplication(new Simulation(ticksPerSecond, maxCatchUpSteps), config);
 	}
 }
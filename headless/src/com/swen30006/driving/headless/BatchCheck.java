@@ -0,0 +1,217 @@
+package com.swen30006.driving.headless;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Sprite;
+
+import controller.CarController;
+import world.Car;
+import world.CarBatch;
+import world.CarParameters;
+import world.MapCache;
+import world.World;
+import world.WorldMap;
+
+/**
+ * Checks that CarBatch still steps cars exactly as Car does. Cars are scattered over the
+ * open tiles of a map with a mix of handling, then given the same random controls as a
+ * Car each and in two CarBatches, one stepped on this thread and one split over a pool.
+ * After every tick each car's CarBatch.stateHash is compared with its Car.stateHash.
+ *
+ * CarBatch copies the arithmetic of Car.update and CarPhysics.step rather than calling
+ * it, so run this after changing either of them.
+ *
+ * Usage: BatchCheck [map] [cars] [ticks] [threads]
+ * The map is loaded relative to the working directory, which should be core/assets.
+ */
+public class BatchCheck extends ApplicationAdapter {
+
+	private static final String CAR_SPRITE = "sprites/car2.png";
+	// Fixed so that a mismatch can be reproduced
+	private static final long SEED = 7;
+	// Printed in full before only being counted
+	private static final int MISMATCHES_SHOWN = 5;
+
+	private final String mapName;
+	private final int carCount;
+	private final int ticks;
+	private final int threads;
+
+	public BatchCheck(String mapName, int carCount, int ticks, int threads){
+		this.mapName = mapName;
+		this.carCount = carCount;
+		this.ticks = ticks;
+		this.threads = threads;
+	}
+
+	@Override
+	public void create(){
+		HeadlessGL.install();
+
+		WorldMap map = MapCache.load(mapName);
+		Texture carTexture = new Texture(CAR_SPRITE);
+		// The cars are stepped here, the World is only there for them to be on
+		World world = new World(map, carTexture, new Function<Car,CarController>(){
+			@Override
+			public CarController apply(Car car){
+				return new CarController(car){
+					@Override
+					public void update(float delta){
+					}
+				};
+			}
+		});
+
+		List<int[]> road = new ArrayList<int[]>();
+		for(int y = 0; y < map.getHeight(); y++){
+			for(int x = 0; x < map.getWidth(); x++){
+				if(!map.lookUp(x, y).isBlocked()){
+					road.add(new int[]{x, y});
+				}
+			}
+		}
+
+		Random random = new Random(SEED);
+		Sprite sprite = new Sprite(carTexture);
+		CarBatch sequential = new CarBatch(map, (int) sprite.getWidth(), (int) sprite.getHeight(), carCount);
+		CarBatch parallel = new CarBatch(map, (int) sprite.getWidth(), (int) sprite.getHeight(), carCount);
+		Car[] cars = new Car[carCount];
+		int[] style = new int[carCount];
+		for(int i = 0; i < carCount; i++){
+			int[] tile = road.get(random.nextInt(road.size()));
+			CarParameters parameters = CarParameters.DEFAULT;
+			if(i % 3 == 1){
+				parameters = parameters.withMaxSpeed(3 + random.nextFloat() * 4);
+			}
+			else if(i % 3 == 2){
+				parameters = parameters.withAcceleration(1 + random.nextFloat() * 3);
+			}
+			float x = tile[0] + random.nextFloat() * 0.4f - 0.2f;
+			float y = tile[1] + random.nextFloat() * 0.4f - 0.2f;
+			cars[i] = new Car(world, new Sprite(carTexture), parameters, x, y);
+			sequential.add(x, y, parameters);
+			parallel.add(x, y, parameters);
+			style[i] = random.nextInt(4);
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		float delta = 1f / 60;
+		long checks = 0;
+		long mismatches = 0;
+		for(int tick = 0; tick < ticks; tick++){
+			for(int i = 0; i < carCount; i++){
+				if(cars[i].getOutcome().isFinished()){
+					continue;
+				}
+				int controls = controls(random, style[i]);
+				drive(cars[i], controls, delta);
+				cars[i].update(delta);
+				sequential.setControls(i, controls);
+				parallel.setControls(i, controls);
+			}
+			sequential.step(delta);
+			parallel.step(delta, pool);
+
+			for(int i = 0; i < carCount; i++){
+				checks++;
+				long hash = cars[i].stateHash();
+				if(hash != sequential.stateHash(i) || hash != parallel.stateHash(i)){
+					if(mismatches < MISMATCHES_SHOWN){
+						System.out.println("Tick " + tick + ", car " + i + ": Car at " + cars[i].getPosition() + " health "
+								+ cars[i].getHealth() + " " + cars[i].getOutcome() + ", batch at " + sequential.getX(i) + ","
+								+ sequential.getY(i) + " health " + sequential.getHealth(i) + " " + sequential.getOutcome(i));
+					}
+					mismatches++;
+				}
+			}
+		}
+		pool.shutdown();
+
+		System.out.println("Map:        " + mapName);
+		System.out.println("Checked:    " + carCount + " cars x " + ticks + " ticks, batch split over " + threads + " threads");
+		System.out.println("Finished:   " + (carCount - sequential.getRunning()) + " cars, "
+				+ sequential.getRunning() + " still running");
+		if(mismatches == 0){
+			System.out.println("CarBatch matched Car on all " + checks + " checks");
+		}
+		else{
+			System.out.println("CarBatch DIFFERED from Car on " + mismatches + " of " + checks + " checks");
+		}
+
+		Gdx.app.exit();
+	}
+
+	/**
+	 * Controls for a tick, in the style of one of four kinds of driver: mostly forwards,
+	 * back and forth, or anything at all, the first three also turning and braking now
+	 * and then.
+	 */
+	private static int controls(Random random, int style){
+		int roll = random.nextInt(100);
+		int controls;
+		if(style == 0){
+			controls = roll < 80 ? CarBatch.FORWARD : 0;
+		}
+		else if(style == 1){
+			controls = roll < 40 ? CarBatch.REVERSE : roll < 80 ? CarBatch.FORWARD : 0;
+		}
+		else{
+			controls = random.nextInt(32);
+		}
+		if(style != 3){
+			int turn = random.nextInt(10);
+			if(turn == 0){
+				controls |= CarBatch.LEFT;
+			}
+			else if(turn == 1){
+				controls |= CarBatch.RIGHT;
+			}
+			if(random.nextInt(30) == 0){
+				controls |= CarBatch.BRAKE;
+			}
+		}
+		return controls;
+	}
+
+	/**
+	 * Applies controls to a Car in the order CarBatch applies them.
+	 */
+	private static void drive(Car car, int controls, float delta){
+		if((controls & CarBatch.FORWARD) != 0){
+			car.applyForwardAcceleration();
+		}
+		if((controls & CarBatch.REVERSE) != 0){
+			car.applyReverseAcceleration();
+		}
+		if((controls & CarBatch.BRAKE) != 0){
+			car.brake();
+		}
+		if((controls & CarBatch.LEFT) != 0){
+			car.turnLeft(delta);
+		}
+		if((controls & CarBatch.RIGHT) != 0){
+			car.turnRight(delta);
+		}
+	}
+
+	public static void main (String[] arg) {
+		String mapName = arg.length > 0 ? arg[0] : "easy-map.tmx";
+		int carCount = arg.length > 1 ? Integer.parseInt(arg[1]) : 200;
+		int ticks = arg.length > 2 ? Integer.parseInt(arg[2]) : 3600;
+		int threads = arg.length > 3 ? Integer.parseInt(arg[3]) : Runtime.getRuntime().availableProcessors();
+
+		HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+		// The whole check runs inside create(), so the render loop is never needed.
+		config.renderInterval = -1;
+		new HeadlessApplication(new BatchCheck(mapName, carCount, ticks, threads), config);
+	}
+}
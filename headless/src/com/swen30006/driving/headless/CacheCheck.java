@@ -0,0 +1,192 @@
+package com.swen30006.driving.headless;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.maps.tiled.TmxMapLoader;
+
+import controller.CarController;
+import tiles.TileKind;
+import world.Car;
+import world.CarParameters;
+import world.MapCache;
+import world.World;
+import world.WorldMap;
+import world.WorldSpatial;
+
+/**
+ * Checks that a map behaves the same whether it was parsed from its .tmx, as on a cache
+ * miss, or read back from its MapCache copy, as on a hit. For every tile of each map a
+ * car is put there on both and every distance query a controller can make is compared,
+ * then each controller drives on both and the car's state is compared after every tick.
+ *
+ * Usage: CacheCheck [--maps=a.tmx,b.tmx] [--controllers=AIController,MyAIController] [--ticks=3600]
+ * Maps default to every .tmx file in the working directory, which should be core/assets.
+ * The cache of each map is written next to it if it is not there already.
+ */
+public class CacheCheck extends ApplicationAdapter {
+
+	private static final String CAR_SPRITE = "sprites/car2.png";
+	// Printed in full before only being counted
+	private static final int MISMATCHES_SHOWN = 5;
+
+	private final List<String> mapNames;
+	private final List<String> controllerNames;
+	private final int ticks;
+	private int mismatches = 0;
+
+	public CacheCheck(List<String> mapNames, List<String> controllerNames, int ticks){
+		this.mapNames = mapNames;
+		this.controllerNames = controllerNames;
+		this.ticks = ticks;
+	}
+
+	/**
+	 * Asks a car's distance queries on behalf of the check.
+	 */
+	private static class Probe extends CarController {
+
+		Probe(Car car){
+			super(car);
+		}
+
+		/**
+		 * Every answer the queries give from the car's tile, in a fixed order.
+		 */
+		int[] answers(){
+			WorldSpatial.Direction[] directions = WorldSpatial.Direction.values();
+			int[] answers = new int[directions.length * 3 + TileKind.values().length + 1];
+			int i = 0;
+			for(WorldSpatial.Direction direction : directions){
+				answers[i++] = getFreeRun(direction);
+				answers[i++] = getTrapRun(direction);
+				answers[i++] = isWallWithin(direction, 2) ? 1 : 0;
+			}
+			answers[i++] = getWallDistance();
+			for(TileKind kind : TileKind.values()){
+				answers[i++] = kind.isTrap() ? getTrapDistance(kind) : 0;
+			}
+			return answers;
+		}
+
+		@Override
+		public void update(float delta){
+		}
+	}
+
+	@Override
+	public void create(){
+		HeadlessGL.install();
+		Texture carTexture = new Texture(CAR_SPRITE);
+
+		int checks = 0;
+		for(String mapName : mapNames){
+			// Makes sure there is a cache, so the second load is a hit
+			MapCache.load(mapName);
+			WorldMap hit = MapCache.load(mapName);
+			if(!hit.getTileGrid().isPaged()){
+				System.out.println(mapName + ": no cache could be written, skipped");
+				continue;
+			}
+			WorldMap miss = new WorldMap(new TmxMapLoader().load(mapName));
+
+			checks += checkQueries(mapName, miss, hit, carTexture);
+			for(String controllerName : controllerNames){
+				checks += checkDriving(mapName, miss, hit, carTexture, controllerName);
+			}
+		}
+
+		if(mismatches == 0){
+			System.out.println("Cache hits matched cache misses on all " + checks + " checks");
+		}
+		else{
+			System.out.println("Cache hits DIFFERED from cache misses on " + mismatches + " of " + checks + " checks");
+		}
+		Gdx.app.exit();
+	}
+
+	private int checkQueries(String mapName, WorldMap miss, WorldMap hit, Texture carTexture){
+		Function<Car,CarController> probes = new Function<Car,CarController>(){
+			@Override
+			public CarController apply(Car car){
+				return new Probe(car);
+			}
+		};
+		World missWorld = new World(miss, carTexture, probes);
+		World hitWorld = new World(hit, carTexture, probes);
+		int checks = 0;
+		for(int y = 0; y < miss.getHeight(); y++){
+			for(int x = 0; x < miss.getWidth(); x++){
+				int[] expected = new Probe(new Car(missWorld, new Sprite(carTexture), CarParameters.DEFAULT, x, y)).answers();
+				int[] actual = new Probe(new Car(hitWorld, new Sprite(carTexture), CarParameters.DEFAULT, x, y)).answers();
+				checks++;
+				if(!Arrays.equals(expected, actual)){
+					mismatch(mapName + " (" + x + ", " + y + "): " + Arrays.toString(expected) + " parsed, "
+							+ Arrays.toString(actual) + " cached");
+				}
+			}
+		}
+		return checks;
+	}
+
+	private int checkDriving(String mapName, WorldMap miss, WorldMap hit, Texture carTexture, String controllerName){
+		Function<Car,CarController> factory = Tournament.controllerFactory(controllerName);
+		World missWorld = new World(miss, carTexture, factory);
+		World hitWorld = new World(hit, carTexture, factory);
+		int checks = 0;
+		for(int tick = 0; tick < ticks && !missWorld.getCar().getOutcome().isFinished(); tick++){
+			missWorld.update(1f / 60);
+			hitWorld.update(1f / 60);
+			checks++;
+			if(missWorld.getCar().stateHash() != hitWorld.getCar().stateHash()){
+				mismatch(mapName + " " + controllerName + " tick " + tick + ": parsed at " + missWorld.getCar().getPosition()
+						+ ", cached at " + hitWorld.getCar().getPosition());
+				break;
+			}
+		}
+		return checks;
+	}
+
+	private void mismatch(String message){
+		if(mismatches < MISMATCHES_SHOWN){
+			System.out.println(message);
+		}
+		mismatches++;
+	}
+
+	public static void main (String[] arg) {
+		List<String> maps = null;
+		List<String> controllers = Arrays.asList("AIController", "MyAIController");
+		int ticks = 3600;
+		for(String option : arg){
+			String value = option.substring(option.indexOf('=') + 1);
+			if(option.startsWith("--maps=")){
+				maps = Arrays.asList(value.split(","));
+			}
+			else if(option.startsWith("--controllers=")){
+				controllers = Arrays.asList(value.split(","));
+			}
+			else if(option.startsWith("--ticks=")){
+				ticks = Integer.parseInt(value);
+			}
+			else{
+				throw new IllegalArgumentException("Unknown option " + option);
+			}
+		}
+		if(maps == null){
+			maps = Tournament.allMaps();
+		}
+
+		HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+		// The whole check runs inside create(), so the render loop is never needed.
+		config.renderInterval = -1;
+		new HeadlessApplication(new CacheCheck(maps, controllers, ticks), config);
+	}
+}
@@ -0,0 +1,46 @@
+package com.swen30006.driving.headless;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+
+import world.MapCache;
+
+/**
+ * Brings the MapCache of every map up to date ahead of time, so that the first run on a
+ * map does not have to parse it either. Maps whose cache is already current are left alone.
+ *
+ * Usage: CompileMaps [a.tmx b.tmx ...]
+ * Maps default to every .tmx file in the working directory (core/assets).
+ */
+public class CompileMaps extends ApplicationAdapter {
+
+	private final List<String> mapNames;
+
+	public CompileMaps(List<String> mapNames){
+		this.mapNames = mapNames;
+	}
+
+	@Override
+	public void create(){
+		HeadlessGL.install();
+		for(String mapName : mapNames){
+			long start = System.nanoTime();
+			MapCache.load(mapName);
+			System.out.println(mapName + MapCache.CACHE_SUFFIX + String.format(" (%.1f ms)", (System.nanoTime() - start) / 1e6));
+		}
+		Gdx.app.exit();
+	}
+
+	public static void main (String[] arg) {
+		List<String> maps = arg.length > 0 ? Arrays.asList(arg) : Tournament.allMaps();
+
+		HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+		config.renderInterval = -1;
+		new HeadlessApplication(new CompileMaps(maps), config);
+	}
+}
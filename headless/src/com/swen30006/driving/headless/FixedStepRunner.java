@@ -0,0 +1,117 @@
+package com.swen30006.driving.headless;
+
+import java.util.List;
+import java.util.function.Function;
+
+import controller.CarController;
+import world.Car;
+import world.CarParameters;
+import world.Outcome;
+import world.TickProfile;
+import world.World;
+import world.WorldMap;
+
+/**
+ * Steps a World with a fixed simulated delta, as fast as the CPU allows, until the car
+ * escapes, fails or runs out of simulated time. It touches nothing but the World it is
+ * given, so separate Worlds can be run on separate threads at the same time. How long
+ * the ticks took is added to the TickProfile totals for the controller at the end.
+ *
+ * A runner can also set off several cars from the start of the map, SPAWN_SECONDS apart,
+ * and then runs until every one of them has finished.
+ *
+ */
+public class FixedStepRunner {
+
+	/** Simulated seconds between one car setting off and the next */
+	public static final float SPAWN_SECONDS = 2;
+
+	private final int ticksPerSecond;
+	private final float maxSimSeconds;
+	private final int cars;
+
+	public FixedStepRunner(int ticksPerSecond, float maxSimSeconds){
+		this(ticksPerSecond, maxSimSeconds, 1);
+	}
+
+	/**
+	 * @param cars how many cars to set off, counting the one the World starts with
+	 */
+	public FixedStepRunner(int ticksPerSecond, float maxSimSeconds, int cars){
+		if(cars < 1){
+			throw new IllegalArgumentException("There has to be at least one car");
+		}
+		this.ticksPerSecond = ticksPerSecond;
+		this.maxSimSeconds = maxSimSeconds;
+		this.cars = cars;
+	}
+
+	public RunResult run(World world, String mapName){
+		return run(world, mapName, null);
+	}
+
+	/**
+	 * @param factory makes the controllers of the cars after the first, only needed if the
+	 * 		runner sets off more than one
+	 */
+	public RunResult run(World world, String mapName, Function<Car,CarController> factory){
+		if(cars > 1 && factory == null){
+			throw new IllegalArgumentException("A controller factory is needed for " + cars + " cars");
+		}
+		Car car = world.getCar();
+		String controllerName = world.getController().getClass().getSimpleName();
+
+		float delta = 1f / ticksPerSecond;
+		long maxTicks = (long) Math.ceil(maxSimSeconds * ticksPerSecond);
+		long spawnTicks = Math.max(1, Math.round(SPAWN_SECONDS * ticksPerSecond));
+		WorldMap map = world.getMap();
+
+		long ticks = 0;
+		String error = null;
+		long start = System.nanoTime();
+		try {
+			while(ticks < maxTicks && (world.getCars().size() < cars || !allFinished(world.getCars()))){
+				if(world.getCars().size() < cars && ticks > 0 && ticks % spawnTicks == 0){
+					world.addCar(map.getStartX(), map.getStartY(), CarParameters.DEFAULT, factory);
+				}
+				world.update(delta);
+				ticks++;
+			}
+		} catch (RuntimeException | StackOverflowError e) {
+			// A controller that throws, or overflows the stack, fails its own attempt only.
+			// Other errors, such as running out of memory, are left to stop the whole run.
+			error = e.toString();
+		}
+		long elapsed = System.nanoTime() - start;
+		TickProfile.addToTotals(controllerName, world.getTickProfile());
+
+		Outcome outcome = car.getOutcome();
+		if(error != null){
+			outcome = Outcome.ERROR;
+		}
+		else if(!outcome.isFinished()){
+			outcome = Outcome.TIMED_OUT;
+		}
+		int escaped = 0;
+		for(Car each : world.getCars()){
+			if(each.getOutcome() == Outcome.ESCAPED){
+				escaped++;
+			}
+		}
+		return new RunResult(mapName, controllerName, outcome, ticks, ticksPerSecond, car.getHealth(), elapsed, error,
+				world.getCars().size(), escaped);
+	}
+
+	private static boolean allFinished(List<Car> cars){
+		for(int i = 0; i < cars.size(); i++){
+			if(!cars.get(i).getOutcome().isFinished()){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public int getTicksPerSecond(){
+		return ticksPerSecond;
+	}
+}
@@ -0,0 +1,30 @@
+package com.swen30006.driving.headless;
+
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+
+/**
+ * Entry point for running an escape attempt without a window or GPU.
+ *
+ * Usage: HeadlessLauncher [map.tmx] [ticksPerSecond] [maxSimSeconds] [recording]
+ * If a recording path is given, the controller's inputs are saved there for Replay.
+ * Paths are relative to the working directory, which should be core/assets.
+ */
+public class HeadlessLauncher {
+
+	private static final String DEFAULT_MAP = "lecture-preview(1).tmx";
+	private static final int DEFAULT_TICKS_PER_SECOND = 60;
+	private static final float DEFAULT_MAX_SIM_SECONDS = 600;
+
+	public static void main (String[] arg) {
+		String map = arg.length > 0 ? arg[0] : DEFAULT_MAP;
+		int ticksPerSecond = arg.length > 1 ? Integer.parseInt(arg[1]) : DEFAULT_TICKS_PER_SECOND;
+		float maxSimSeconds = arg.length > 2 ? Float.parseFloat(arg[2]) : DEFAULT_MAX_SIM_SECONDS;
+		String recordingPath = arg.length > 3 ? arg[3] : null;
+
+		HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+		// The whole attempt runs inside create(), so the render loop is never needed.
+		config.renderInterval = -1;
+		new HeadlessApplication(new HeadlessSimulation(map, ticksPerSecond, maxSimSeconds, recordingPath), config);
+	}
+}
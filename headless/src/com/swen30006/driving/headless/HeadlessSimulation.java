@@ -0,0 +1,76 @@
+package com.swen30006.driving.headless;
+
+import java.io.IOException;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+
+import replay.InputRecorder;
+import world.MapCache;
+import world.TickProfile;
+import world.World;
+
+/**
+ * Runs a single escape attempt without a window. The map is loaded and the World built
+ * exactly as Simulation.create() does, then stepped by a FixedStepRunner. The controller's
+ * inputs can be recorded for Replay.
+ *
+ */
+public class HeadlessSimulation extends ApplicationAdapter {
+
+	private final String mapName;
+	private final FixedStepRunner runner;
+	private final String recordingPath;
+
+	/**
+	 * @param recordingPath where to save an input recording of the run, null to not record
+	 */
+	public HeadlessSimulation(String mapName, int ticksPerSecond, float maxSimSeconds, String recordingPath){
+		this.mapName = mapName;
+		this.runner = new FixedStepRunner(ticksPerSecond, maxSimSeconds);
+		this.recordingPath = recordingPath;
+	}
+
+	@Override
+	public void create(){
+		HeadlessGL.install();
+
+		World world = new World(MapCache.load(mapName));
+
+		InputRecorder recorder = null;
+		if(recordingPath != null){
+			recorder = new InputRecorder(mapName, world.getController().getClass().getName(), 1f / runner.getTicksPerSecond());
+			world.getCar().setInputRecorder(recorder);
+		}
+
+		report(runner.run(world, mapName));
+
+		if(recorder != null){
+			recorder.finish(world.getCar().stateHash());
+			try {
+				recorder.save(recordingPath);
+				System.out.println("Recording:  " + recordingPath + " (" + recorder.getTicks() + " ticks)");
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		world.dispose();
+
+		Gdx.app.exit();
+	}
+
+	private void report(RunResult result){
+		System.out.println("Map:        " + result.getMapName());
+		System.out.println("Controller: " + result.getControllerName());
+		System.out.println("Outcome:    " + result.getOutcome() + " after " + String.format("%.2f", result.getSimSeconds())
+				+ " simulated seconds (" + result.getTicks() + " ticks at " + runner.getTicksPerSecond() + " Hz)");
+		if(result.getError() != null){
+			System.out.println("Error:      " + result.getError());
+		}
+		System.out.println("Health:     " + result.getHealth());
+		System.out.println("Wall time:  " + String.format("%.3f", result.getWallNanos() / 1e9) + " seconds, "
+				+ String.format("%.0f", result.getTicksPerSecond()) + " ticks/sec");
+		System.out.println();
+		TickProfile.printTotals(System.out);
+	}
+}
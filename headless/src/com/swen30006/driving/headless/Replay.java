@@ -0,0 +1,104 @@
+package com.swen30006.driving.headless;
+
+import java.io.IOException;
+import java.util.function.Function;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.graphics.Texture;
+
+import controller.CarController;
+import replay.InputLog;
+import replay.ReplayController;
+import world.Car;
+import world.MapCache;
+import world.World;
+import world.WorldMap;
+
+/**
+ * Re-simulates a run recorded by HeadlessLauncher as fast as possible, driving the car
+ * straight from the recorded inputs without the original controller, and checks that
+ * every repetition ends in exactly the recorded state.
+ *
+ * Usage: Replay recording [repetitions]
+ * The recorded map is loaded relative to the working directory, which should be
+ * core/assets.
+ */
+public class Replay extends ApplicationAdapter {
+
+	private static final String CAR_SPRITE = "sprites/car2.png";
+
+	private final String recordingPath;
+	private final int repetitions;
+
+	public Replay(String recordingPath, int repetitions){
+		this.recordingPath = recordingPath;
+		this.repetitions = repetitions;
+	}
+
+	@Override
+	public void create(){
+		HeadlessGL.install();
+
+		final InputLog log;
+		try {
+			log = InputLog.load(recordingPath);
+		} catch (IOException e) {
+			e.printStackTrace();
+			Gdx.app.exit();
+			return;
+		}
+
+		WorldMap map = MapCache.load(log.getMapName());
+		Texture carTexture = new Texture(CAR_SPRITE);
+		Function<Car,CarController> replayer = new Function<Car,CarController>(){
+			@Override
+			public CarController apply(Car car){
+				return new ReplayController(car, log);
+			}
+		};
+
+		int mismatches = 0;
+		long start = System.nanoTime();
+		for(int i = 0; i < repetitions; i++){
+			World world = new World(map, carTexture, replayer);
+			for(long tick = 0; tick < log.getTicks(); tick++){
+				world.update(log.getDelta());
+			}
+			if(world.getCar().stateHash() != log.getStateHash()){
+				mismatches++;
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+
+		double wallSeconds = elapsed / 1e9;
+		double simSeconds = log.getTicks() * (double) log.getDelta() * repetitions;
+		System.out.println("Recording:  " + recordingPath + " (" + log.getControllerName() + " on " + log.getMapName() + ")");
+		System.out.println("Replayed:   " + repetitions + " x " + log.getTicks() + " ticks in "
+				+ String.format("%.3f", wallSeconds) + " seconds, " + String.format("%.0f", simSeconds / Math.max(wallSeconds, 1e-9))
+				+ "x real time");
+		if(mismatches == 0){
+			System.out.println("Final state matched the recording on every repetition");
+		}
+		else{
+			System.out.println("Final state DIFFERED from the recording on " + mismatches + " of " + repetitions + " repetitions");
+		}
+
+		Gdx.app.exit();
+	}
+
+	public static void main (String[] arg) {
+		if(arg.length < 1){
+			System.out.println("Usage: Replay recording [repetitions]");
+			return;
+		}
+		int repetitions = arg.length > 1 ? Integer.parseInt(arg[1]) : 1;
+
+		HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+		// The whole replay runs inside create(), so the render loop is never needed.
+		config.renderInterval = -1;
+		new HeadlessApplication(new Replay(arg[0], repetitions), config);
+	}
+}
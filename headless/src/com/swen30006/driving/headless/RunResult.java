@@ -0,0 +1,100 @@
+package com.swen30006.driving.headless;
+
+import world.Outcome;
+
+/**
+ * The result of one headless escape attempt.
+ *
+ */
+public class RunResult {
+
+	private final String mapName;
+	private final String controllerName;
+	private final Outcome outcome;
+	private final long ticks;
+	private final int ticksPerSecond;
+	private final int health;
+	private final long wallNanos;
+	private final String error;
+	private final int cars;
+	private final int escapedCars;
+
+	public RunResult(String mapName, String controllerName, Outcome outcome, long ticks, int ticksPerSecond,
+			int health, long wallNanos, String error){
+		this(mapName, controllerName, outcome, ticks, ticksPerSecond, health, wallNanos, error, 1,
+				outcome == Outcome.ESCAPED ? 1 : 0);
+	}
+
+	/**
+	 * The result of an attempt with several cars, whose outcome and health are the first car's.
+	 */
+	public RunResult(String mapName, String controllerName, Outcome outcome, long ticks, int ticksPerSecond,
+			int health, long wallNanos, String error, int cars, int escapedCars){
+		this.cars = cars;
+		this.escapedCars = escapedCars;
+		this.mapName = mapName;
+		this.controllerName = controllerName;
+		this.outcome = outcome;
+		this.ticks = ticks;
+		this.ticksPerSecond = ticksPerSecond;
+		this.health = health;
+		this.wallNanos = wallNanos;
+		this.error = error;
+	}
+
+	public String getMapName(){
+		return mapName;
+	}
+
+	public String getControllerName(){
+		return controllerName;
+	}
+
+	public Outcome getOutcome(){
+		return outcome;
+	}
+
+	public long getTicks(){
+		return ticks;
+	}
+
+	/**
+	 * Simulated seconds until the attempt ended.
+	 */
+	public double getSimSeconds(){
+		return (double) ticks / ticksPerSecond;
+	}
+
+	public int getHealth(){
+		return health;
+	}
+
+	public long getWallNanos(){
+		return wallNanos;
+	}
+
+	public double getTicksPerSecond(){
+		return ticks / Math.max(wallNanos / 1e9, 1e-9);
+	}
+
+	/**
+	 * How many cars the attempt set off.
+	 */
+	public int getCars(){
+		return cars;
+	}
+
+	/**
+	 * How many of the cars reached an exit.
+	 */
+	public int getEscapedCars(){
+		return escapedCars;
+	}
+
+	/**
+	 * What the controller threw if the outcome is ERROR, null otherwise.
+	 */
+	public String getError(){
+		return error;
+	}
+}
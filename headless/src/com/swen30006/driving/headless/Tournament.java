@@ -0,0 +1,272 @@
+package com.swen30006.driving.headless;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.graphics.Texture;
+
+import controller.CarController;
+import world.Car;
+import world.MapCache;
+import world.Outcome;
+import world.TickProfile;
+import world.World;
+import world.WorldMap;
+
+/**
+ * Runs every combination of controller x map x repetition headlessly and concurrently,
+ * then prints a table of how each attempt went and how long ticks took for each
+ * controller. Maps and the car texture are loaded once
+ * up front and shared read-only by every attempt; the attempts themselves are spread
+ * over a work-stealing pool.
+ *
+ * Usage: Tournament [--controllers=AIController,MyAIController] [--maps=a.tmx,b.tmx]
+ *                   [--reps=1] [--hz=60] [--max=600] [--threads=N] [--cars=1]
+ * Controllers may be fully qualified or simple names from the controller and mycontroller
+ * packages. Maps default to every .tmx file in the working directory (core/assets).
+ * With more than one car, each attempt sets them all off from the start, one every
+ * FixedStepRunner.SPAWN_SECONDS, and runs until the last has finished; its row gives the
+ * first car's outcome and health and how many of the cars escaped.
+ */
+public class Tournament extends ApplicationAdapter {
+
+	private static final String CAR_SPRITE = "sprites/car2.png";
+	private static final String[] CONTROLLER_PACKAGES = {"", "controller.", "mycontroller."};
+
+	private final List<String> controllerNames;
+	private final List<String> mapNames;
+	private final int repetitions;
+	private final int threads;
+	private final int cars;
+	private final FixedStepRunner runner;
+
+	public Tournament(List<String> controllerNames, List<String> mapNames, int repetitions, int ticksPerSecond,
+			float maxSimSeconds, int threads, int cars){
+		this.controllerNames = controllerNames;
+		this.mapNames = mapNames;
+		this.repetitions = repetitions;
+		this.threads = threads;
+		this.cars = cars;
+		this.runner = new FixedStepRunner(ticksPerSecond, maxSimSeconds, cars);
+	}
+
+	@Override
+	public void create(){
+		HeadlessGL.install();
+
+		// Loading touches libGDX statics, so it is done once here rather than per attempt
+		Map<String,WorldMap> maps = new LinkedHashMap<String,WorldMap>();
+		for(String mapName : mapNames){
+			maps.put(mapName, MapCache.load(mapName));
+		}
+		Texture carTexture = new Texture(CAR_SPRITE);
+
+		List<Callable<RunResult>> attempts = new ArrayList<Callable<RunResult>>();
+		for(String controllerName : controllerNames){
+			Function<Car,CarController> factory = controllerFactory(controllerName);
+			for(Map.Entry<String,WorldMap> map : maps.entrySet()){
+				for(int i = 0; i < repetitions; i++){
+					attempts.add(attempt(map.getKey(), map.getValue(), carTexture, controllerName, factory));
+				}
+			}
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		long start = System.nanoTime();
+		List<RunResult> results = new ArrayList<RunResult>();
+		try {
+			List<Future<RunResult>> futures = pool.invokeAll(attempts);
+			for(int i = 0; i < futures.size(); i++){
+				try {
+					results.add(futures.get(i).get());
+				} catch (ExecutionException e) {
+					// Attempts record their own failures, so this is an error none should survive
+					if(e.getCause() instanceof Error){
+						throw (Error) e.getCause();
+					}
+					results.add(((Attempt) attempts.get(i)).failed(e.getCause()));
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			pool.shutdown();
+		}
+		long elapsed = System.nanoTime() - start;
+
+		report(results, elapsed);
+		Gdx.app.exit();
+	}
+
+	private Callable<RunResult> attempt(String mapName, WorldMap map, Texture carTexture, String controllerName,
+			Function<Car,CarController> factory){
+		return new Attempt(mapName, map, carTexture, controllerName, factory);
+	}
+
+	/**
+	 * One run of a controller on a map. Anything that goes wrong, including creating the
+	 * controller, ends the attempt with Outcome.ERROR rather than losing it, so the table
+	 * always has a row for every attempt.
+	 */
+	private class Attempt implements Callable<RunResult> {
+
+		private final String mapName;
+		private final WorldMap map;
+		private final Texture carTexture;
+		private final String controllerName;
+		private final Function<Car,CarController> factory;
+
+		Attempt(String mapName, WorldMap map, Texture carTexture, String controllerName,
+				Function<Car,CarController> factory){
+			this.mapName = mapName;
+			this.map = map;
+			this.carTexture = carTexture;
+			this.controllerName = controllerName;
+			this.factory = factory;
+		}
+
+		@Override
+		public RunResult call(){
+			try {
+				return runner.run(new World(map, carTexture, factory), mapName, factory);
+			} catch (RuntimeException | StackOverflowError e) {
+				return failed(e);
+			}
+		}
+
+		RunResult failed(Throwable e){
+			String name = controllerName.substring(controllerName.lastIndexOf('.') + 1);
+			return new RunResult(mapName, name, Outcome.ERROR, 0, runner.getTicksPerSecond(), 0, 0, String.valueOf(e), cars, 0);
+		}
+	}
+
+	private void report(List<RunResult> results, long elapsedNanos){
+		String format = cars > 1 ? "%-20s %-26s %4s  %-13s %12s %7s %9s%n" : "%-20s %-26s %4s  %-13s %12s %7s%n";
+		System.out.printf(format, "Controller", "Map", "Run", "Outcome", "Sim time (s)", "Health", "Escaped");
+
+		long totalTicks = 0;
+		int run = 0;
+		for(RunResult result : results){
+			run = run % repetitions + 1;
+			totalTicks += result.getTicks();
+			System.out.printf(format, result.getControllerName(), result.getMapName(), run, result.getOutcome(),
+					String.format("%.2f", result.getSimSeconds()), result.getHealth(),
+					result.getEscapedCars() + "/" + result.getCars());
+			if(result.getError() != null){
+				System.out.println("    " + result.getError());
+			}
+		}
+
+		double wallSeconds = elapsedNanos / 1e9;
+		System.out.println(results.size() + " attempts on " + threads + " threads in " + String.format("%.2f", wallSeconds)
+				+ " seconds, " + String.format("%.0f", totalTicks / Math.max(wallSeconds, 1e-9)) + " ticks/sec overall");
+		System.out.println();
+		TickProfile.printTotals(System.out);
+	}
+
+	/**
+	 * Builds a factory for a controller, given its class name.
+	 * @throws IllegalArgumentException if there is no such controller
+	 */
+	public static Function<Car,CarController> controllerFactory(String name){
+		final Constructor<? extends CarController> constructor;
+		try {
+			constructor = findControllerClass(name).getConstructor(Car.class);
+		} catch (NoSuchMethodException e) {
+			throw new IllegalArgumentException(name + " has no public constructor taking a Car", e);
+		}
+		return new Function<Car,CarController>(){
+			@Override
+			public CarController apply(Car car){
+				try {
+					return constructor.newInstance(car);
+				} catch (ReflectiveOperationException e) {
+					throw new IllegalStateException("Could not create " + constructor.getDeclaringClass().getName(), e);
+				}
+			}
+		};
+	}
+
+	private static Class<? extends CarController> findControllerClass(String name){
+		for(String prefix : CONTROLLER_PACKAGES){
+			try {
+				return Class.forName(prefix + name).asSubclass(CarController.class);
+			} catch (ClassNotFoundException e) {
+				// Try the next package
+			}
+		}
+		throw new IllegalArgumentException("Unknown controller " + name);
+	}
+
+	static List<String> allMaps(){
+		String[] maps = new File(".").list(new FilenameFilter(){
+			@Override
+			public boolean accept(File dir, String name){
+				return name.endsWith(".tmx");
+			}
+		});
+		Arrays.sort(maps);
+		return Arrays.asList(maps);
+	}
+
+	public static void main (String[] arg) {
+		List<String> controllers = Arrays.asList("AIController", "MyAIController");
+		List<String> maps = null;
+		int repetitions = 1;
+		int ticksPerSecond = 60;
+		float maxSimSeconds = 600;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int cars = 1;
+
+		for(String option : arg){
+			String value = option.substring(option.indexOf('=') + 1);
+			if(option.startsWith("--controllers=")){
+				controllers = Arrays.asList(value.split(","));
+			}
+			else if(option.startsWith("--maps=")){
+				maps = Arrays.asList(value.split(","));
+			}
+			else if(option.startsWith("--reps=")){
+				repetitions = Integer.parseInt(value);
+			}
+			else if(option.startsWith("--hz=")){
+				ticksPerSecond = Integer.parseInt(value);
+			}
+			else if(option.startsWith("--max=")){
+				maxSimSeconds = Float.parseFloat(value);
+			}
+			else if(option.startsWith("--threads=")){
+				threads = Integer.parseInt(value);
+			}
+			else if(option.startsWith("--cars=")){
+				cars = Integer.parseInt(value);
+			}
+			else{
+				throw new IllegalArgumentException("Unknown option " + option);
+			}
+		}
+		if(maps == null){
+			maps = allMaps();
+		}
+
+		HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+		// The whole tournament runs inside create(), so the render loop is never needed.
+		config.renderInterval = -1;
+		new HeadlessApplication(new Tournament(controllers, maps, repetitions, ticksPerSecond, maxSimSeconds, threads, cars), config);
+	}
+}